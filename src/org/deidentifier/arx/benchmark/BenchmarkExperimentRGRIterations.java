@@ -28,7 +28,6 @@ import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkAlgorithm;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkDataset;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkPrivacyModel;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkUtilityMeasure;
-import org.deidentifier.arx.clustering.TassaAlgorithm;
 import org.deidentifier.arx.exceptions.RollbackRequiredException;
 import org.deidentifier.arx.recursive.BenchmarkAlgorithmRGR;
 import org.deidentifier.arx.utility.AggregateFunction;
@@ -249,6 +248,10 @@ public class BenchmarkExperimentRGRIterations {
         }
 
         if (algorithm == BenchmarkAlgorithm.TASSA ||
+            algorithm == BenchmarkAlgorithm.TASSA_SORTED ||
+            algorithm == BenchmarkAlgorithm.TASSA_SHARDED ||
+            algorithm == BenchmarkAlgorithm.TASSA_SAMPLED ||
+            algorithm == BenchmarkAlgorithm.TASSA_HYBRID ||
             algorithm == BenchmarkAlgorithm.RECURSIVE_GLOBAL_RECODING ||
             algorithm == BenchmarkAlgorithm.FLASH) {
             IBenchmarkListener listener = new IBenchmarkListener() {
@@ -272,17 +275,12 @@ public class BenchmarkExperimentRGRIterations {
                 }
             };
 
-            org.deidentifier.arx.benchmark.BenchmarkAlgorithm algorithmImplementation = null;
-            if (algorithm == BenchmarkAlgorithm.TASSA) {
-                algorithmImplementation = new TassaAlgorithm(listener, data, config);
-            } else if (algorithm == BenchmarkAlgorithm.RECURSIVE_GLOBAL_RECODING) {
-                algorithmImplementation = new BenchmarkAlgorithmRGR(listener,
-                                                                    data,
-                                                                    config,
-                                                                    gsStepSize);
-            } else if (algorithm == BenchmarkAlgorithm.FLASH) {
-                algorithmImplementation = new BenchmarkAlgorithmFlash(listener, data, config);
-            }
+            org.deidentifier.arx.benchmark.BenchmarkAlgorithm algorithmImplementation = BenchmarkSetup.getAlgorithm(algorithm,
+                                                                                                                   measure,
+                                                                                                                   listener,
+                                                                                                                   data,
+                                                                                                                   config,
+                                                                                                                   gsStepSize);
 
             // Execute warmup
             System.out.println("Initial warmup phase for " + algorithm.toString());
@@ -28,8 +28,8 @@ import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkDataset;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkPrivacyModel;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkUtilityMeasure;
 import org.deidentifier.arx.clustering.TassaAlgorithm;
+import org.deidentifier.arx.clustering.TassaHybridAlgorithm;
 import org.deidentifier.arx.exceptions.RollbackRequiredException;
-import org.deidentifier.arx.recursive.BenchmarkAlgorithmRGR;
 import org.deidentifier.arx.utility.AggregateFunction;
 import org.deidentifier.arx.utility.DataConverter;
 import org.deidentifier.arx.utility.UtilityMeasureDiscernibility;
@@ -73,6 +73,8 @@ public class BenchmarkExperimentUtilityAndRuntime {
     private final int                VARIANCE_NOTSUPPRESSED    = BENCHMARK.addMeasure("VarianceWithoutSuppressed");
     /** NUMBER OF DISTINCT TRANSFORMATIONS */
     private final int                NUMBER_OF_TRANSFORMATIONS = BENCHMARK.addMeasure("Transformations");
+    /** NUMBER OF ITERATIONS OF THE CLUSTERING ALGORITHM */
+    private final int                ITERATIONS                = BENCHMARK.addMeasure("Iterations");
     /** Number of runs for each benchmark setting */
     private int                      numberOfRuns;
     /** Number of warmup runs */
@@ -146,7 +148,11 @@ public class BenchmarkExperimentUtilityAndRuntime {
                             // We take default values for Flash and Clustering
                             double gsFactor = 0.5;
                             double gsStepSize = 0.0;
-                            if (algorithm == BenchmarkAlgorithm.TASSA) {
+                            if (algorithm == BenchmarkAlgorithm.TASSA ||
+                                algorithm == BenchmarkAlgorithm.TASSA_SORTED ||
+                                algorithm == BenchmarkAlgorithm.TASSA_SHARDED ||
+                                algorithm == BenchmarkAlgorithm.TASSA_SAMPLED ||
+                                algorithm == BenchmarkAlgorithm.TASSA_HYBRID) {
                                 double suppressionLimit = 0.0;
 
                                 performExperiment(dataset,
@@ -214,6 +220,10 @@ public class BenchmarkExperimentUtilityAndRuntime {
         }
 
         if (algorithm == BenchmarkAlgorithm.TASSA ||
+            algorithm == BenchmarkAlgorithm.TASSA_SORTED ||
+            algorithm == BenchmarkAlgorithm.TASSA_SHARDED ||
+            algorithm == BenchmarkAlgorithm.TASSA_SAMPLED ||
+            algorithm == BenchmarkAlgorithm.TASSA_HYBRID ||
             algorithm == BenchmarkAlgorithm.RECURSIVE_GLOBAL_RECODING ||
             algorithm == BenchmarkAlgorithm.FLASH) {
             IBenchmarkListener listener = new IBenchmarkListener() {
@@ -237,17 +247,12 @@ public class BenchmarkExperimentUtilityAndRuntime {
                 }
             };
 
-            org.deidentifier.arx.benchmark.BenchmarkAlgorithm algorithmImplementation = null;
-            if (algorithm == BenchmarkAlgorithm.TASSA) {
-                algorithmImplementation = new TassaAlgorithm(listener, data, config);
-            } else if (algorithm == BenchmarkAlgorithm.RECURSIVE_GLOBAL_RECODING) {
-                algorithmImplementation = new BenchmarkAlgorithmRGR(listener,
-                                                                    data,
-                                                                    config,
-                                                                    gsStepSize);
-            } else if (algorithm == BenchmarkAlgorithm.FLASH) {
-                algorithmImplementation = new BenchmarkAlgorithmFlash(listener, data, config);
-            }
+            org.deidentifier.arx.benchmark.BenchmarkAlgorithm algorithmImplementation = BenchmarkSetup.getAlgorithm(algorithm,
+                                                                                                                   measure,
+                                                                                                                   listener,
+                                                                                                                   data,
+                                                                                                                   config,
+                                                                                                                   gsStepSize);
 
             // Execute warmup
             System.out.println("Initial warmup phase for " + algorithm.toString());
@@ -312,6 +317,10 @@ public class BenchmarkExperimentUtilityAndRuntime {
         }
 
         if (algorithm == BenchmarkAlgorithm.TASSA ||
+            algorithm == BenchmarkAlgorithm.TASSA_SORTED ||
+            algorithm == BenchmarkAlgorithm.TASSA_SHARDED ||
+            algorithm == BenchmarkAlgorithm.TASSA_SAMPLED ||
+            algorithm == BenchmarkAlgorithm.TASSA_HYBRID ||
             algorithm == BenchmarkAlgorithm.RECURSIVE_GLOBAL_RECODING ||
             algorithm == BenchmarkAlgorithm.FLASH) {
 
@@ -400,6 +409,10 @@ public class BenchmarkExperimentUtilityAndRuntime {
                                 }
                                 break;
                             case TASSA:
+                            case TASSA_SORTED:
+                            case TASSA_SHARDED:
+                            case TASSA_SAMPLED:
+                            case TASSA_HYBRID:
                                 numberOfTransformations = BenchmarkHelper.calculateNumberOfTransformations(output,
                                                                                                            header,
                                                                                                            hierarchies);
@@ -437,17 +450,12 @@ public class BenchmarkExperimentUtilityAndRuntime {
                 }
             };
 
-            org.deidentifier.arx.benchmark.BenchmarkAlgorithm algorithmImplementation = null;
-            if (algorithm == BenchmarkAlgorithm.TASSA) {
-                algorithmImplementation = new TassaAlgorithm(listener, data, config);
-            } else if (algorithm == BenchmarkAlgorithm.RECURSIVE_GLOBAL_RECODING) {
-                algorithmImplementation = new BenchmarkAlgorithmRGR(listener,
-                                                                    data,
-                                                                    config,
-                                                                    gsStepSize);
-            } else if (algorithm == BenchmarkAlgorithm.FLASH) {
-                algorithmImplementation = new BenchmarkAlgorithmFlash(listener, data, config);
-            }
+            org.deidentifier.arx.benchmark.BenchmarkAlgorithm algorithmImplementation = BenchmarkSetup.getAlgorithm(algorithm,
+                                                                                                                   measure,
+                                                                                                                   listener,
+                                                                                                                   data,
+                                                                                                                   config,
+                                                                                                                   gsStepSize);
 
             if (numberOfWarmups > 0) {
                 System.out.print("Warmup... ");
@@ -462,13 +470,22 @@ public class BenchmarkExperimentUtilityAndRuntime {
 
                 System.out.print("Iteration: ");
             }
+            double[] iterations = new double[numberOfRuns];
             for (int i = 0; i < numberOfRuns; i++) {
                 double time = System.currentTimeMillis();
                 algorithmImplementation.execute();
                 double elapsed = (System.currentTimeMillis() - time) / 1000d;
                 System.out.print("(" + (int) elapsed + " s), ");
+                if (algorithmImplementation instanceof TassaAlgorithm) {
+                    iterations[i] = ((TassaAlgorithm) algorithmImplementation).getStatistics()
+                                                                                .getIterations();
+                } else if (algorithmImplementation instanceof TassaHybridAlgorithm) {
+                    iterations[i] = ((TassaHybridAlgorithm) algorithmImplementation).getStatistics()
+                                                                                      .getIterations();
+                }
             }
             System.out.println(">> done!");
+            BENCHMARK.addValue(ITERATIONS, BenchmarkHelper.calculateArithmeticMean(iterations));
 
             // Write after each experiment
             BENCHMARK.getResults().write(resultFile);
@@ -31,9 +31,13 @@ import org.deidentifier.arx.ARXConfiguration;
 import org.deidentifier.arx.AttributeType.Hierarchy;
 import org.deidentifier.arx.Data;
 import org.deidentifier.arx.DataSource;
+import org.deidentifier.arx.clustering.TassaAlgorithm;
+import org.deidentifier.arx.clustering.TassaAlgorithmImpl.TassaPartitioning;
+import org.deidentifier.arx.clustering.TassaHybridAlgorithm;
 import org.deidentifier.arx.criteria.KAnonymity;
 import org.deidentifier.arx.metric.Metric;
 import org.deidentifier.arx.metric.Metric.AggregateFunction;
+import org.deidentifier.arx.recursive.BenchmarkAlgorithmRGR;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -219,6 +223,10 @@ public class BenchmarkSetup {
     public static enum BenchmarkAlgorithm {
         RECURSIVE_GLOBAL_RECODING("RGR"),
         TASSA("Clustering"),
+        TASSA_SORTED("ClusteringSorted"),
+        TASSA_HYBRID("ClusteringHybrid"),
+        TASSA_SHARDED("ClusteringSharded"),
+        TASSA_SAMPLED("ClusteringSampled"),
         FLASH("Flash");
 
         private final String name;
@@ -326,6 +334,61 @@ public class BenchmarkSetup {
         return config;
     }
 
+    /**
+     * Returns an implementation of the given algorithm. Clustering algorithms
+     * optimize the given utility measure.
+     * 
+     * @param algorithm
+     * @param measure
+     * @param listener
+     * @param data
+     * @param config
+     * @param gsStepSize
+     *            Only used for recursive global recoding.
+     * @return
+     * @throws IOException
+     */
+    public static org.deidentifier.arx.benchmark.BenchmarkAlgorithm getAlgorithm(BenchmarkAlgorithm algorithm,
+                                                                                 BenchmarkUtilityMeasure measure,
+                                                                                 IBenchmarkListener listener,
+                                                                                 Data data,
+                                                                                 ARXConfiguration config,
+                                                                                 double gsStepSize) throws IOException {
+
+        // KL divergence cannot be decomposed into costs of clusters, so
+        // clustering falls back to optimizing Loss
+        BenchmarkUtilityMeasure clusteringMeasure = measure == BenchmarkUtilityMeasure.KLDIVERGENCE ? BenchmarkUtilityMeasure.LOSS
+                                                                                                    : measure;
+        switch (algorithm) {
+            case TASSA:
+            case TASSA_SORTED:
+            case TASSA_SHARDED:
+            case TASSA_SAMPLED: {
+                TassaAlgorithm tassa = new TassaAlgorithm(listener, data, config);
+                tassa.setUtilityMeasure(clusteringMeasure);
+                if (algorithm == BenchmarkAlgorithm.TASSA_SORTED) {
+                    tassa.setPartitioning(TassaPartitioning.SORTED);
+                } else if (algorithm == BenchmarkAlgorithm.TASSA_SHARDED) {
+                    tassa.setShardSize(TassaAlgorithm.DEFAULT_SHARD_SIZE);
+                } else if (algorithm == BenchmarkAlgorithm.TASSA_SAMPLED) {
+                    tassa.setSampleFraction(TassaAlgorithm.DEFAULT_SAMPLE_FRACTION);
+                }
+                return tassa;
+            }
+            case TASSA_HYBRID: {
+                TassaHybridAlgorithm hybrid = new TassaHybridAlgorithm(listener, data, config);
+                hybrid.setUtilityMeasure(clusteringMeasure);
+                return hybrid;
+            }
+            case RECURSIVE_GLOBAL_RECODING:
+                return new BenchmarkAlgorithmRGR(listener, data, config, gsStepSize);
+            case FLASH:
+                return new BenchmarkAlgorithmFlash(listener, data, config);
+            default:
+                throw new UnsupportedOperationException("Unimplemented Algorithm: " + algorithm);
+        }
+    }
+
     /**
      * Configures and returns the dataset
      * 
@@ -2,7 +2,10 @@ package org.deidentifier.arx.clustering;
 
 import java.util.HashSet;
 
+import java.util.Arrays;
+
 import cern.colt.map.OpenIntIntHashMap;
+import cern.colt.map.OpenIntObjectHashMap;
 
 import org.deidentifier.arx.ARXInterface;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
@@ -12,14 +15,43 @@ import cern.colt.list.IntArrayList;
 
 public class GeneralizationManager {
 
-    /** TODO */
-    private final DomainShareMaterialized[] shares;
+    /** Domain shares per attribute, indexed by level * number of values + value */
+    private final double[][]                shares;
+    /** Domain sizes per attribute */
+    private final double[]                  domainSizes;
     /** TODO */
     private final int                       numAttributes;
     /** TODO */
     private final int[][][]                 hierarchies;
-    /** TODO */
-    private final int[][]                   data;
+    /** Hierarchies transposed to [attribute][level][value] */
+    private final int[][][]                 generalizedValues;
+    /** Data transposed to [attribute][record], with space for records which are added later */
+    private final int[][]                   columns;
+    /** Number of distinct values, including generalized ones, per attribute */
+    private final int[]                     numValues;
+    /**
+     * Paths from the leaves to the roots of the hierarchies, packed into one long per value. Each level
+     * stores the rank of the node among its siblings, higher levels are stored in higher bits. Null for
+     * hierarchies that need more than 63 bits.
+     */
+    private final long[][]                  paths;
+    /** Maps the highest bit in which two paths differ to the level on which they are joined */
+    private final int[][]                   joinLevels;
+    /**
+     * Records with identical values are collapsed. The first occurrence of each tuple represents all
+     * records with this tuple, and its weight is the number of these records. Other records have weight 0.
+     */
+    private int[]                           weights;
+    /** The next record with the same tuple, by record, -1 if none */
+    private int[]                           duplicates;
+    /** Records which represent distinct tuples, null if records have been added or removed since */
+    private int[]                           representatives;
+    /** The representative of each record, -1 for removed records. Created when a record is removed */
+    private int[]                           representativeOf;
+    /** Number of records, including records which have been added later */
+    private int                             numRecords;
+    /** Measure of information loss */
+    private TassaCostModel                  costModel;
 
     /**
      * Creates a new instance
@@ -28,13 +60,198 @@ public class GeneralizationManager {
     public GeneralizationManager(ARXInterface arxInterface) {
         GeneralizationHierarchy[] generalizationHierarchies = arxInterface.getDataManager().getHierarchies();
         this.numAttributes = generalizationHierarchies.length;
-        this.shares = new DomainShareMaterialized[numAttributes];
+        this.shares = new double[numAttributes][];
+        this.domainSizes = new double[numAttributes];
         this.hierarchies = new int[numAttributes][][];
-        this.data = arxInterface.getDataQI();
+        this.paths = new long[numAttributes][];
+        this.joinLevels = new int[numAttributes][];
+        this.generalizedValues = new int[numAttributes][][];
+        this.columns = new int[numAttributes][];
+        this.numValues = new int[numAttributes];
+        int[][] data = arxInterface.getDataQI();
         for (int i = 0; i < generalizationHierarchies.length; i++) {
-            this.shares[i] = arxInterface.getDomainShares()[i];
             this.hierarchies[i] = generalizationHierarchies[i].getArray();
+            this.encodePaths(i);
+
+            // Transpose hierarchy
+            int[][] hierarchy = hierarchies[i];
+            this.generalizedValues[i] = new int[hierarchy[0].length][hierarchy.length];
+            for (int value = 0; value < hierarchy.length; value++) {
+                for (int level = 0; level < hierarchy[0].length; level++) {
+                    this.generalizedValues[i][level][value] = hierarchy[value][level];
+                    this.numValues[i] = Math.max(this.numValues[i], hierarchy[value][level] + 1);
+                }
+            }
+
+            // Materialize domain shares
+            DomainShareMaterialized share = arxInterface.getDomainShares()[i];
+            this.shares[i] = new double[hierarchy[0].length * numValues[i]];
+            for (int value = 0; value < hierarchy.length; value++) {
+                for (int level = 0; level < hierarchy[0].length; level++) {
+                    this.shares[i][level * numValues[i] + hierarchy[value][level]] = share.getShare(hierarchy[value][level], level);
+                }
+            }
+            this.domainSizes[i] = share.getDomainSize();
+
+            // Transpose data
+            int[] column = new int[data.length];
+            for (int record = 0; record < data.length; record++) {
+                column[record] = data[record][i];
+            }
+            this.columns[i] = column;
+        }
+
+        // Collapse duplicates
+        this.weights = new int[data.length];
+        this.duplicates = new int[data.length];
+        Arrays.fill(this.duplicates, -1);
+        int[] lastDuplicates = new int[data.length];
+        IntArrayList representatives = new IntArrayList();
+        OpenIntObjectHashMap buckets = new OpenIntObjectHashMap();
+        for (int record = 0; record < data.length; record++) {
+            int hash = Arrays.hashCode(data[record]);
+            IntArrayList bucket = (IntArrayList) buckets.get(hash);
+            if (bucket == null) {
+                bucket = new IntArrayList(1);
+                buckets.put(hash, bucket);
+            }
+            int representative = -1;
+            for (int i = 0; i < bucket.size() && representative == -1; i++) {
+                if (Arrays.equals(data[bucket.getQuick(i)], data[record])) {
+                    representative = bucket.getQuick(i);
+                }
+            }
+            if (representative == -1) {
+                bucket.add(record);
+                representatives.add(record);
+                this.weights[record] = 1;
+                lastDuplicates[record] = record;
+            } else {
+                this.weights[representative]++;
+                this.duplicates[lastDuplicates[representative]] = record;
+                lastDuplicates[representative] = record;
+            }
+        }
+        representatives.trimToSize();
+        this.representatives = representatives.elements();
+        this.numRecords = data.length;
+        this.costModel = new TassaLossCostModel(this);
+    }
+
+    /**
+     * Adds a record with the given tuple, which must be encoded like the data of the interface, and returns
+     * its identifier. The record represents itself with weight 1, even if its tuple is already contained.
+     * Space is grown exponentially, such that adding a batch of records takes time linear in the size of
+     * the batch. Records must not be added while the manager is used concurrently.
+     * @param tuple
+     * @return
+     */
+    public int addRecord(int[] tuple) {
+
+        // Check
+        if (tuple.length != numAttributes) {
+            throw new IllegalArgumentException("Record must have " + numAttributes + " values: " + tuple.length);
+        }
+        for (int i = 0; i < numAttributes; i++) {
+            int value = tuple[i];
+            if (value < 0 || value >= hierarchies[i].length || hierarchies[i][value][0] != value) {
+                throw new IllegalArgumentException("Value " + value + " is not a leaf of the hierarchy of attribute " + i);
+            }
+        }
+
+        // Grow
+        if (numRecords == weights.length) {
+            int capacity = Math.max(numRecords + 1, numRecords * 2);
+            for (int i = 0; i < numAttributes; i++) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+            weights = Arrays.copyOf(weights, capacity);
+            duplicates = Arrays.copyOf(duplicates, capacity);
+            if (representativeOf != null) {
+                representativeOf = Arrays.copyOf(representativeOf, capacity);
+            }
+        }
+
+        // Add
+        int record = numRecords++;
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i][record] = tuple[i];
+        }
+        weights[record] = 1;
+        duplicates[record] = -1;
+        if (representativeOf != null) {
+            representativeOf[record] = record;
+        }
+        representatives = null;
+        return record;
+    }
+
+    /**
+     * Removes the given record and returns the record which represents the remaining records with the same
+     * tuple, -1 if there are none. If the record has been a representative, its next duplicate takes its
+     * place. Identifiers of other records do not change. Records must not be removed while the manager is
+     * used concurrently.
+     * @param record
+     * @return
+     */
+    public int removeRecord(int record) {
+
+        // Check
+        int representative = getRepresentative(record);
+        if (representative == -1) {
+            throw new IllegalArgumentException("Record has already been removed: " + record);
+        }
+
+        // Remove from the duplicates of the tuple
+        int result = representative;
+        if (record == representative) {
+            result = duplicates[record];
+            if (result != -1) {
+                weights[result] = weights[record] - 1;
+                for (int duplicate = result; duplicate != -1; duplicate = duplicates[duplicate]) {
+                    representativeOf[duplicate] = result;
+                }
+            }
+        } else {
+            int previous = representative;
+            while (duplicates[previous] != record) {
+                previous = duplicates[previous];
+            }
+            duplicates[previous] = duplicates[record];
+            weights[representative]--;
+        }
+        weights[record] = 0;
+        duplicates[record] = -1;
+        representativeOf[record] = -1;
+        representatives = null;
+        return result;
+    }
+
+    /**
+     * Returns the information loss of a cluster consisting of the two given records,
+     * per record. Information loss is not normalized.
+     * @param record1
+     * @param record2
+     * @return
+     */
+    public double getDistance(int record1, int record2) {
+
+        double cost = 0d;
+        for (int i = 0; i < numAttributes; i++) {
+            int[] column = columns[i];
+            int level = getJoinLevel(i, column[record1], column[record2]);
+            cost += getDomainShare(i, level, generalizedValues[i][level][column[record1]]);
         }
+        return cost / (double) numAttributes;
+    }
+
+    /**
+     * Returns the next record with the same tuple as the given one, -1 if there is none
+     * @param record
+     * @return
+     */
+    public int getDuplicate(int record) {
+        return duplicates[record];
     }
 
     /**
@@ -45,7 +262,7 @@ public class GeneralizationManager {
      * @return
      */
     public double getDomainShare(int dimension, int level, int value) {
-        return shares[dimension].getShare(value, level);
+        return shares[dimension][level * numValues[dimension] + value];
     }
     
     /**
@@ -54,7 +271,7 @@ public class GeneralizationManager {
      * @return
      */
     public double getDomainSize(int dimension) {
-        return shares[dimension].getDomainSize();
+        return domainSizes[dimension];
     }
     
     /**
@@ -75,12 +292,11 @@ public class GeneralizationManager {
      */
     public int getGeneralizationLevel(int dimension, IntArrayList records, int lvl) {
 
-        int[][] hierarchy = hierarchies[dimension];
-        int val = hierarchy[data[records.getQuick(0)][dimension]][lvl];
-        for (int i = 1; i < records.size() && lvl != hierarchy[0].length - 1; i++) {
-            while (hierarchy[data[records.getQuick(i)][dimension]][lvl] != val) {
-                val = hierarchy[data[records.getQuick(i - 1)][dimension]][++lvl];
-            }
+        int top = hierarchies[dimension][0].length - 1;
+        int[] column = columns[dimension];
+        int value = column[records.getQuick(0)];
+        for (int i = 1; i < records.size() && lvl != top; i++) {
+            lvl = Math.max(lvl, getJoinLevel(dimension, value, column[records.getQuick(i)]));
         }
         return lvl;
     }
@@ -89,234 +305,279 @@ public class GeneralizationManager {
      * Two clusters
      */
     public int getGeneralizationLevelWhenAddingCluster(int dimension, IntArrayList records1, IntArrayList records2, int lvl) {
-
-
-        int[][] hierarchy = hierarchies[dimension];
-        int[] current = hierarchy[data[records2.getQuick(0)][dimension]];
-        int[] previous = hierarchy[data[records1.getQuick(0)][dimension]];
-        int val = previous[lvl];
-        while (current[lvl] != val) {
-            val = previous[++lvl];
-        }
-        return lvl;
+        return Math.max(lvl, getJoinLevel(dimension,
+                                          columns[dimension][records1.getQuick(0)],
+                                          columns[dimension][records2.getQuick(0)]));
     }
 
     /**
-     * Cluster and record
-     */
-    public int getGeneralizationLevelWhenRemovingRecord(int dimension, IntArrayList records, int record) {
-
-        // Prepare
-        int[][] hierarchy = hierarchies[dimension];
-        int lvl = 0;
-        int idx = records.getQuick(0) == record ? 1 : 0;
-        int val = hierarchy[data[records.getQuick(idx)][dimension]][lvl];
-        
-        for (int i = idx + 1; i < records.size() && lvl != hierarchy[0].length - 1; i++) {
-            
-            if (records.getQuick(i) == record && i == records.size()-1) {
-                break;
-            }
-            
-            int current = records.getQuick(i) != record ? records.getQuick(i) : records.getQuick(i+1);
-            int previous = records.getQuick(i-1) != record ? records.getQuick(i-1) : records.getQuick(i-2);
-            
-            while (hierarchy[data[current][dimension]][lvl] != val) {
-                val = hierarchy[data[previous][dimension]][++lvl];
-            }
-        }
-        return lvl;
-    }
-
-    /**
-     * Once cluster. This method has two side effects: it updates the generalization and cache arrays.
-     * Information loss is not normalized.
-     * @param cluster
-     * @param generalization
-     * @param cache 
+     * Returns the height of the hierarchy for the given attribute
+     * @param dimension
      * @return
      */
-    public double getInformationLoss(IntArrayList cluster, int[] generalization, double[] cache) {
-
-        double cost = 0d;
-        int[] record = data[cluster.getQuick(0)];
-        
-        for (int i = 0; i < numAttributes; i++) {
-            int level = getGeneralizationLevel(i, cluster);
-            if (level != generalization[i] || cache[i] == -1d) {
-                generalization[i] = level;
-                int[][] hierarchy = hierarchies[i];
-                int value = hierarchy[record[i]][level];
-                double share = getDomainShare(i, level, value);
-                cost += share;
-                cache[i] = share;
-            } else {
-                cost += cache[i];
-            }
-        }
-        
-        cost /= (double) numAttributes;
-        cost *= cluster.size();
-        return cost;
+    public int getHeight(int dimension) {
+        return hierarchies[dimension][0].length;
     }
 
     /**
      * Once cluster. This method has two side effects: it updates the generalization and cache arrays.
      * Information loss is not normalized.
      * @param cluster
+     * @param size number of records represented by the cluster
+     * @param histogram
      * @param generalization
      * @param cache 
      * @return
      */
-    public double getNMEntropy(IntArrayList cluster, int[] generalization, double[] cache) {
-
-        double cost = 0d;
-        int[] record = data[cluster.getQuick(0)];
-        
-        double[] attributeEntropies = new double[numAttributes];
-        
-        for (int i = 0; i < numAttributes; i++) {
-            
-            OpenIntIntHashMap distinctValues = new OpenIntIntHashMap();
-            
-            for (int j = 0; j < cluster.size(); j++) {
-                distinctValues.put(data[cluster.getQuick(j)][i], 0);
-            }
-            
-            int level = getGeneralizationLevel(i, cluster);
-            if (level != generalization[i] || cache[i] == -1d) {
-                generalization[i] = level;
-                int[][] hierarchy = hierarchies[i];
-                int value = hierarchy[record[i]][level];
-                double share = getDomainShare(i, level, value);
-                cost += share;
-                cache[i] = share;
-            } else {
-                cost += cache[i];
-            }
-        }
-        
-        cost /= (double) numAttributes;
-        cost *= cluster.size();
-        return cost;
+    public double getInformationLoss(IntArrayList cluster, int size, TassaHistogram histogram, int[] generalization, double[] cache) {
+        return costModel.getCost(cluster, size, histogram, generalization, cache);
     }
 
     /**
      * Two clusters
      * @param cluster1
+     * @param size1 number of records represented by the first cluster
      * @param generalization1
      * @param cluster2
+     * @param size2 number of records represented by the second cluster
      * @param generalization2
      * @return
      */
     public double getInformationLossWhenAddingCluster(IntArrayList cluster1, 
+                                                      int size1,
                                                       int[] generalization1,
                                                       IntArrayList cluster2, 
+                                                      int size2,
                                                       int[] generalization2) {
-        
-        
-
-        double cost = 0d;
-        int[] record = data[cluster1.getQuick(0)];
-
-        for (int i = 0; i < numAttributes; i++) {
-            int level = getGeneralizationLevelWhenAddingCluster(i,
-                                                                cluster1,
-                                                                cluster2,
-                                                                Math.max(generalization1[i],
-                                                                         generalization2[i]));
-            int[][] hierarchy = hierarchies[i];
-            int value = hierarchy[record[i]][level];
-            cost += getDomainShare(i, level, value);
-        }
-
-        cost /= (double) numAttributes;
-        cost *= (cluster1.size() + cluster2.size());
-        return cost;
+        return costModel.getCostWhenAddingCluster(cluster1, size1, generalization1, cluster2, size2, generalization2);
     }
     
     /**
      * Cluster and record
      * @param cluster
+     * @param size number of records represented by the cluster
      * @param generalization
      * @param record
      * @return
      */
     public double getInformationLossWhenAddingRecord(IntArrayList cluster, 
+                                                     int size,
                                                      int[] generalization, 
                                                      int record,
                                                      double[] cache) {
+        return costModel.getCostWhenAddingRecord(cluster, size, generalization, record, cache);
+    }
 
-        double cost = 0d;
-        int[] tuple = data[record];
-        
-        for (int dimension = 0; dimension <numAttributes; dimension++) {
-            
-            int inputvalue = tuple[dimension];
-            int level = generalization[dimension];
-            int[][] hierarchy = hierarchies[dimension];
-            int[] current = hierarchy[inputvalue];
-            int[] previous = hierarchy[data[cluster.getQuick(0)][dimension]];
-            int tempvalue = previous[level];
-            while (current[level] != tempvalue) {
-                tempvalue = previous[++level];
+    /**
+     * Cluster without record
+     * @param cluster
+     * @param size number of records represented by the cluster
+     * @param histogram
+     * @param record
+     * @return
+     */
+    public double getInformationLossWhenRemovingRecord(IntArrayList cluster, int size, TassaHistogram histogram, int record) {
+        return costModel.getCostWhenRemovingRecord(cluster, size, histogram, record);
+    }
+    
+
+    /**
+     * Returns the number of attributes
+     * @return
+     */
+    public int getNumAttributes() {
+        return numAttributes;
+    }
+
+    /**
+     * Returns the measure of information loss
+     * @return
+     */
+    public TassaCostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Returns the number of records, including records which have been added later
+     * @return
+     */
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Returns the number of distinct values, including generalized ones, of the given attribute
+     * @param dimension
+     * @return
+     */
+    public int getNumValues(int dimension) {
+        return numValues[dimension];
+    }
+
+    /**
+     * Returns the number of records represented by the given record
+     * @param record
+     * @return
+     */
+    public int getWeight(int record) {
+        return weights[record];
+    }
+
+    /**
+     * Returns the record which represents the given one, -1 if it has been removed. The first call takes
+     * time linear in the number of records.
+     * @param record
+     * @return
+     */
+    public int getRepresentative(int record) {
+        if (record < 0 || record >= numRecords) {
+            throw new IllegalArgumentException("No such record: " + record);
+        }
+        if (representativeOf == null) {
+            representativeOf = new int[weights.length];
+            Arrays.fill(representativeOf, -1);
+            for (int representative = 0; representative < numRecords; representative++) {
+                if (weights[representative] > 0) {
+                    for (int duplicate = representative; duplicate != -1; duplicate = duplicates[duplicate]) {
+                        representativeOf[duplicate] = representative;
+                    }
+                }
             }
-            
-            if (level != generalization[dimension]) {
-                int generalizedvalue = hierarchy[inputvalue][level];
-                cost += getDomainShare(dimension, level, generalizedvalue);
-            } else {
-                cost += cache[dimension];
+        }
+        return representativeOf[record];
+    }
+
+    /**
+     * Returns the records which represent distinct tuples, including records which have been added later.
+     * After records have been added or removed, the representatives are collected again.
+     * @return
+     */
+    public int[] getRepresentatives() {
+        if (representatives == null) {
+            IntArrayList result = new IntArrayList();
+            for (int record = 0; record < numRecords; record++) {
+                if (weights[record] > 0) {
+                    result.add(record);
+                }
             }
+            representatives = Arrays.copyOf(result.elements(), result.size());
         }
+        return representatives;
+    }
 
-        cost /= (double) numAttributes;
-        cost *= (cluster.size() + 1);
-        return cost;
+    /**
+     * Sets the measure of information loss. Loss is used by default. The model must not be changed while
+     * clusters of this manager are in use.
+     * @param costModel
+     */
+    public void setCostModel(TassaCostModel costModel) {
+        this.costModel = costModel;
     }
 
     /**
-     * Cluster without record
-     * @param cluster
+     * Returns the value of the given record
+     * @param dimension
      * @param record
      * @return
      */
-    public double getInformationLossWhenRemovingRecord(IntArrayList cluster, int record) {
+    int getValue(int dimension, int record) {
+        return columns[dimension][record];
+    }
 
-        
+    /**
+     * Returns the path from the value of the given record to the root of the hierarchy
+     * @param record
+     * @param dimension
+     * @return
+     */
+    public int[] getPath(int record, int dimension) {
+        return hierarchies[dimension][columns[dimension][record]];
+    }
+    
+    /**
+     * Returns the lowest level on which both values are generalized to the same value
+     * @param dimension
+     * @param value1
+     * @param value2
+     * @return
+     */
+    int getJoinLevel(int dimension, int value1, int value2) {
 
-        double cost = 0d;
-        int index = cluster.getQuick(0) != record ? cluster.getQuick(0) : cluster.getQuick(1);
-        int[] tuple = data[index];
-        
-        for (int i = 0; i < numAttributes; i++) {
-            int level = getGeneralizationLevelWhenRemovingRecord(i, cluster, record);
-            int[][] hierarchy = hierarchies[i];
-            int value = hierarchy[tuple[i]][level];
-            cost += getDomainShare(i, level, value);
+        long[] paths = this.paths[dimension];
+        if (paths != null) {
+            long difference = paths[value1] ^ paths[value2];
+            return difference == 0L ? 0 : joinLevels[dimension][63 - Long.numberOfLeadingZeros(difference)];
         }
 
-        cost /= (double) numAttributes;
-        cost *= (cluster.size() - 1);
-        return cost;
+        // Fallback for very large hierarchies
+        int[] path1 = hierarchies[dimension][value1];
+        int[] path2 = hierarchies[dimension][value2];
+        int top = path1.length - 1;
+        int level = 0;
+        while (level < top && path1[level] != path2[level]) {
+            level++;
+        }
+        return level;
     }
-    
 
     /**
-     * Returns the number of attributes
-     * @return
+     * Packs the paths from the leaves to the root of the given hierarchy into longs
+     * @param dimension
      */
-    public int getNumAttributes() {
-        return numAttributes;
+    private void encodePaths(int dimension) {
+
+        // Rank each node among its siblings
+        int[][] hierarchy = hierarchies[dimension];
+        int height = hierarchy[0].length;
+        int[][] ranks = new int[hierarchy.length][height];
+        int[] offsets = new int[height + 1];
+        for (int level = 0; level < height; level++) {
+            OpenIntIntHashMap nodes = new OpenIntIntHashMap();
+            OpenIntIntHashMap siblings = new OpenIntIntHashMap();
+            int max = 1;
+            for (int value = 0; value < hierarchy.length; value++) {
+                int node = hierarchy[value][level];
+                if (!nodes.containsKey(node)) {
+                    int parent = level == height - 1 ? 0 : hierarchy[value][level + 1];
+                    int count = siblings.get(parent);
+                    nodes.put(node, count);
+                    siblings.put(parent, count + 1);
+                    max = Math.max(max, count + 1);
+                }
+                ranks[value][level] = nodes.get(node);
+            }
+            offsets[level + 1] = offsets[level] + 32 - Integer.numberOfLeadingZeros(max - 1);
+        }
+
+        // Too large
+        if (offsets[height] > 63) {
+            return;
+        }
+
+        // Pack
+        long[] paths = new long[hierarchy.length];
+        for (int value = 0; value < hierarchy.length; value++) {
+            for (int level = 0; level < height; level++) {
+                paths[value] |= ((long) ranks[value][level]) << offsets[level];
+            }
+        }
+        int[] joinLevels = new int[64];
+        for (int level = 0; level < height; level++) {
+            for (int bit = offsets[level]; bit < offsets[level + 1]; bit++) {
+                joinLevels[bit] = Math.min(level + 1, height - 1);
+            }
+        }
+        this.paths[dimension] = paths;
+        this.joinLevels[dimension] = joinLevels;
     }
-    
+
     /**
      * Returns the transformed record
      */
     public int[] getTransformation(int record, int[] generalization) {
         int[] result = new int[generalization.length];
         for (int i=0; i<result.length; i++) {
-            result[i] = hierarchies[i][data[record][i]][generalization[i]];
+            result[i] = generalizedValues[i][generalization[i]][columns[i][record]];
         }
         return result;
     }
@@ -1,17 +1,38 @@
 package org.deidentifier.arx.clustering;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.deidentifier.arx.ARXConfiguration;
 import org.deidentifier.arx.ARXInterface;
 import org.deidentifier.arx.Data;
 import org.deidentifier.arx.benchmark.BenchmarkAlgorithm;
+import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkUtilityMeasure;
 import org.deidentifier.arx.benchmark.IBenchmarkListener;
+import org.deidentifier.arx.clustering.TassaAlgorithmImpl.TassaMerging;
+import org.deidentifier.arx.clustering.TassaAlgorithmImpl.TassaPartitioning;
+import org.deidentifier.arx.clustering.TassaAlgorithmImpl.TassaSnapshotListener;
+
+import cern.colt.list.IntArrayList;
 
 public class TassaAlgorithm extends BenchmarkAlgorithm {
 
+    /** Maximal number of records per shard used by the benchmarks */
+    public static final int    DEFAULT_SHARD_SIZE      = 5000;
+    /** Fraction of records clustered exactly, used by the benchmarks */
+    public static final double DEFAULT_SAMPLE_FRACTION = 0.1d;
+
     /** Interface */
     private ARXInterface      arxInterface;
     /** TODO */
@@ -26,15 +47,48 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
     private double            threshold;
     /** TODO */
     private boolean           logging                = false;
+    /** Number of threads used for moving records */
+    private int               numThreads             = 1;
+    /** Number of bytes above which the closeness matrix is stored in a memory-mapped file */
+    private long              matrixMemoryLimit      = TassaClosenessMatrix.DEFAULT_MEMORY_LIMIT;
+    /** Strategy for creating the initial partitioning */
+    private TassaPartitioning partitioning           = TassaPartitioning.RANDOM;
+    /** Strategy for merging clusters with size < k */
+    private TassaMerging      merging                = TassaMerging.AUTOMATIC;
+    /** Measure of information loss which is optimized */
+    private BenchmarkUtilityMeasure utilityMeasure   = BenchmarkUtilityMeasure.LOSS;
+    /** Number of independently seeded runs, of which the best one is returned */
+    private int               numStarts              = 1;
+    /** Seed of the first run, null for a random seed */
+    private Long              seed                   = null;
+    /** Time budget in milliseconds, 0 for no limit */
+    private long              timeLimit              = 0L;
+    /** Point in time at which the current execution stops refining */
+    private long              deadline               = Long.MAX_VALUE;
+    /** Whether improved intermediate results are reported to the listener */
+    private boolean           snapshots              = false;
+    /** Information loss of the last reported intermediate result */
+    private double            snapshotLoss           = Double.MAX_VALUE;
+    /** File to which checkpoints are written, null to disable checkpoints */
+    private File              checkpointFile         = null;
+    /** Minimal time between two checkpoints, in milliseconds */
+    private long              checkpointInterval     = 60000L;
+    /** Checkpoint from which the next execution is resumed, may be null */
+    private File              resumeFile             = null;
+    /** First failure when writing a checkpoint in the last execution, may be null */
+    private IOException       checkpointFailure      = null;
+    /** Maximal number of records per shard, 0 to disable sharding */
+    private int               shardSize              = 0;
+    /** Fraction of records which is clustered exactly, 1 to cluster all records */
+    private double            sampleFraction         = 1d;
     /** TODO */
     private TassaStatistics   statistics             = null;
     /** TODO */
     private Set<TassaCluster> clustering             = null;
-    /**
-     * Weights for transformations (how many records do have this
-     * transformation)
-     */
-    private int[]             weights;
+    /** Result of the last execution, which can be modified by inserting and retracting records */
+    private TassaAlgorithmImpl lastResult            = null;
+    /** Identifiers of the values of each attribute, created when records are inserted for the first time */
+    private List<Map<String, Integer>> encoding      = null;
 
     /**
      * Create a new instance
@@ -67,8 +121,6 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
         super(listener);
         this.arxInterface = new ARXInterface(data, config);
         this.threshold = threshold;
-        weights = new int[data.getHandle().getNumRows()];
-        Arrays.fill(weights, 1);
     }
 
     @Override
@@ -76,31 +128,43 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
 
         this.statistics = null;
         this.clustering = null;
+        this.lastResult = null;
+        this.checkpointFailure = null;
+        this.deadline = timeLimit > 0L ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+        this.snapshotLoss = Double.MAX_VALUE;
 
         if (threshold == 0) {
-            TassaAlgorithmImpl algorithm = new TassaAlgorithmImpl(arxInterface);
-            algorithm.setLogging(this.logging);
             super.start();
-            algorithm.execute(alpha, omega, null);
+            TassaAlgorithmImpl algorithm;
+            if (shardSize > 0) {
+                algorithm = executeShards();
+            } else if (sampleFraction < 1d) {
+                algorithm = executeSample();
+            } else {
+                algorithm = executeStarts();
+            }
             this.statistics = algorithm.getStatistics();
+            this.checkpointFailure = algorithm.getCheckpointFailure();
             this.initialInformationLoss = algorithm.getInititalInformationLoss();
             this.informationLoss = algorithm.getFinalInformationLoss();
             this.clustering = algorithm.getClustering();
-            final String[][] outputTable = getOutputTableWithoutHeader(algorithm.getOutputBuffer());
+            this.lastResult = algorithm;
+            final String[][] outputTable = getOutputTableWithoutHeader(arxInterface, algorithm.getOutputBuffer());
             super.finished(outputTable);
         } else {
 
-            TassaAlgorithmImpl algorithm = new TassaAlgorithmImpl(arxInterface);
-            algorithm.setLogging(this.logging);
+            // The statistics of the instance accumulate over all passes,
+            // except for the execution time of each pass
+            TassaAlgorithmImpl algorithm = createAlgorithm(this.seed != null ? this.seed : new Random().nextLong());
+            long executionTime = 0L;
             double delta = Double.MAX_VALUE;
-            while (delta > threshold) {
+            while (delta > threshold && System.currentTimeMillis() < deadline) {
                 super.start();
                 algorithm.execute(alpha, omega, this.clustering);
-                if (this.statistics == null) {
-                    this.statistics = algorithm.getStatistics();
-                } else {
-                    this.statistics.merge(algorithm.getStatistics());
+                if (this.checkpointFailure == null) {
+                    this.checkpointFailure = algorithm.getCheckpointFailure();
                 }
+                executionTime += algorithm.getStatistics().getExecutionTime();
                 this.clustering = algorithm.getClustering();
                 final double base = algorithm.getInititalInformationLoss();
                 if (this.initialInformationLoss < 0d) {
@@ -108,9 +172,12 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
                 }
                 this.informationLoss = algorithm.getFinalInformationLoss();
                 delta = Math.abs(informationLoss - base);
-                super.updated(getOutputTableWithoutHeader(algorithm.getOutputBuffer()), null);
+                super.updated(getOutputTableWithoutHeader(arxInterface, algorithm.getOutputBuffer()), null);
             }
-            super.finished(getOutputTableWithoutHeader(algorithm.getOutputBuffer()));
+            this.statistics = algorithm.getStatistics();
+            this.statistics.setExecutionTime(executionTime);
+            this.lastResult = algorithm;
+            super.finished(getOutputTableWithoutHeader(arxInterface, algorithm.getOutputBuffer()));
         }
     }
 
@@ -129,9 +196,76 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
      * @return
      */
     public Set<TassaCluster> getClustering() {
+        if (this.clustering == null && this.lastResult != null) {
+            this.clustering = this.lastResult.getClustering();
+        }
         return this.clustering;
     }
 
+    /**
+     * Returns the given rows of the output of the last execution, including
+     * inserted records. Rows of retracted records are null.
+     * 
+     * @param rows
+     * @return
+     */
+    public String[][] getOutput(int[] rows) {
+        if (lastResult == null) { throw new IllegalStateException("No execution has been performed"); }
+        String[][] mapping = arxInterface.getDataManager()
+                                         .getDataGeneralized()
+                                         .getDictionary()
+                                         .getMapping();
+        String[][] output = new String[rows.length][arxInterface.getNumAttributes()];
+        for (int i = 0; i < rows.length; i++) {
+            int[] row = lastResult.getOutputBuffer(rows[i]);
+            if (row == null) {
+                output[i] = null;
+                continue;
+            }
+            for (int attribute = 0; attribute < output[i].length; attribute++) {
+                output[i][attribute] = mapping[attribute][row[attribute]];
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Returns the number of bytes above which the closeness matrix is stored
+     * in a memory-mapped file
+     * 
+     * @return
+     */
+    public long getMatrixMemoryLimit() {
+        return matrixMemoryLimit;
+    }
+
+    /**
+     * Returns the strategy for merging clusters with size < k
+     * 
+     * @return
+     */
+    public TassaMerging getMerging() {
+        return merging;
+    }
+
+    /**
+     * Returns the number of independently seeded runs
+     * 
+     * @return
+     */
+    public int getNumStarts() {
+        return numStarts;
+    }
+
+    /**
+     * Returns the number of threads used for moving records
+     * 
+     * @return
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     /**
      * Returns omega
      * 
@@ -141,6 +275,86 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
         return omega;
     }
 
+    /**
+     * Returns the strategy for creating the initial partitioning
+     * 
+     * @return
+     */
+    public TassaPartitioning getPartitioning() {
+        return partitioning;
+    }
+
+    /**
+     * Returns the names of the quasi-identifiers, in the order in which
+     * values of inserted records are expected
+     * 
+     * @return
+     */
+    public String[] getQuasiIdentifiers() {
+        String[] result = new String[arxInterface.getNumAttributes()];
+        for (int attribute = 0; attribute < result.length; attribute++) {
+            result[attribute] = arxInterface.getAttribute(attribute);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the fraction of records which is clustered exactly
+     * 
+     * @return
+     */
+    public double getSampleFraction() {
+        return sampleFraction;
+    }
+
+    /**
+     * Returns the maximal number of records per shard, 0 if sharding is
+     * disabled
+     * 
+     * @return
+     */
+    public int getShardSize() {
+        return shardSize;
+    }
+
+    /**
+     * Returns the time budget in milliseconds, 0 for no limit
+     * 
+     * @return
+     */
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Returns the measure of information loss which is optimized
+     * 
+     * @return
+     */
+    public BenchmarkUtilityMeasure getUtilityMeasure() {
+        return utilityMeasure;
+    }
+
+    /**
+     * Returns whether improved intermediate results are reported
+     * 
+     * @return
+     */
+    public boolean isSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Returns the first failure when writing a checkpoint in the last
+     * execution, null if all checkpoints have been written or checkpoints are
+     * disabled. Failed checkpoints do not stop the execution.
+     * 
+     * @return
+     */
+    public IOException getCheckpointFailure() {
+        return checkpointFailure;
+    }
+
     /**
      * Returns the resulting info loss
      * 
@@ -159,6 +373,59 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
         this.alpha = alpha;
     }
 
+    /**
+     * Inserts records into the result of the last execution, without
+     * executing the algorithm again. Records consist of the values of the
+     * quasi-identifiers, in the order of getQuasiIdentifiers(), and
+     * each value must be a leaf of the hierarchy of its attribute. The new
+     * records are appended to the output and the result remains k-anonymous.
+     * Only clusters which receive records are repaired, so the effort depends
+     * on the number of new records rather than on the size of the dataset.
+     * 
+     * @param records
+     * @return rows of the output which have changed, including the new ones
+     */
+    public int[] insert(String[][] records) {
+
+        // Check
+        if (lastResult == null) { throw new IllegalStateException("Records can only be inserted after an execution"); }
+
+        // Encode
+        int[][] tuples = new int[records.length][];
+        for (int i = 0; i < records.length; i++) {
+            tuples[i] = encode(records[i]);
+        }
+
+        // Insert
+        int[] changed = lastResult.insert(tuples, omega);
+        this.informationLoss = lastResult.getFinalInformationLoss();
+        this.clustering = null;
+        return changed;
+    }
+
+    /**
+     * Removes records from the result of the last execution, without
+     * executing the algorithm again. Only clusters which contain the records
+     * are repaired, and clusters which become smaller than k are merged with
+     * their closest clusters, so the result remains k-anonymous. Rows of the
+     * removed records are null in the output.
+     * 
+     * @param rows
+     * @return rows of the output which have changed, including the removed
+     *         ones
+     */
+    public int[] retract(int[] rows) {
+
+        // Check
+        if (lastResult == null) { throw new IllegalStateException("Records can only be retracted after an execution"); }
+
+        // Retract
+        int[] changed = lastResult.retract(rows);
+        this.informationLoss = lastResult.getFinalInformationLoss();
+        this.clustering = null;
+        return changed;
+    }
+
     /**
      * Enables/disables logging
      * 
@@ -168,6 +435,166 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
         this.logging = logging;
     }
 
+    /**
+     * Sets the number of bytes above which the closeness matrix is stored in a
+     * memory-mapped file
+     * 
+     * @param matrixMemoryLimit
+     */
+    public void setMatrixMemoryLimit(long matrixMemoryLimit) {
+        this.matrixMemoryLimit = matrixMemoryLimit;
+    }
+
+    /**
+     * Sets the strategy for merging clusters with size < k
+     * 
+     * @param merging
+     */
+    public void setMerging(TassaMerging merging) {
+        this.merging = merging;
+    }
+
+    /**
+     * Sets the number of independently seeded runs, which are executed
+     * concurrently. The clustering with the lowest information loss is
+     * returned. Only used for single-pass executions.
+     * 
+     * @param numStarts
+     */
+    public void setNumStarts(int numStarts) {
+        if (numStarts < 1) { throw new IllegalArgumentException("Number of starts must be at least one: " +
+                                                                numStarts); }
+        this.numStarts = numStarts;
+    }
+
+    /**
+     * Sets the number of threads used for moving records. For a given input,
+     * results are reproducible for each number of threads.
+     * 
+     * @param numThreads
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1) { throw new IllegalArgumentException("Number of threads must be at least one: " +
+                                                                 numThreads); }
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Sets the strategy for creating the initial partitioning
+     * 
+     * @param partitioning
+     */
+    public void setPartitioning(TassaPartitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Sets the seed of the first run. Run i uses seed + i, so that each run
+     * can be reproduced with a single start and the seed recorded in the
+     * statistics.
+     * 
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Enables approximate single-pass executions. Moving and splitting is
+     * only performed for a uniform sample of the records with the given
+     * fraction. All other records are then assigned to the closest cluster of
+     * the sample, after which clusters are split and merged to restore the
+     * size constraints. Multiple starts, checkpoints and snapshots are not
+     * supported in this mode.
+     * 
+     * @param sampleFraction
+     *            set to 1 to cluster all records exactly
+     */
+    public void setSampleFraction(double sampleFraction) {
+        if (sampleFraction <= 0d || sampleFraction > 1d) { throw new IllegalArgumentException("Sample fraction must be in (0, 1]: " +
+                                                                                              sampleFraction); }
+        this.sampleFraction = sampleFraction;
+    }
+
+    /**
+     * Enables sharding of single-pass executions. The dataset is split into
+     * shards of at most the given number of records by a coarse
+     * generalization of the quasi-identifiers. Shards are clustered
+     * independently on the configured number of threads, and clusters with
+     * less than k records are merged across shards afterwards. Multiple
+     * starts, checkpoints and snapshots are not supported in this mode.
+     * 
+     * @param shardSize
+     *            set to 0 to disable sharding
+     */
+    public void setShardSize(int shardSize) {
+        if (shardSize < 0) { throw new IllegalArgumentException("Shard size must not be negative: " + shardSize); }
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Enables/disables reporting of intermediate results. After each
+     * iteration which improves the information loss, a k-anonymous copy of
+     * the current clustering is reported as an update. Each snapshot requires
+     * copying and finalizing the clustering.
+     * 
+     * @param snapshots
+     */
+    public void setSnapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Enables checkpoints of single-pass executions with a single start. The
+     * clustering, iteration counter and statistics are written to the given
+     * file on a background thread whenever the given interval has passed.
+     * 
+     * @param file
+     *            set to null to disable checkpoints
+     * @param interval
+     *            minimal time between two checkpoints, in milliseconds
+     */
+    public void setCheckpoint(File file, long interval) {
+        if (interval < 0L) { throw new IllegalArgumentException("Interval must not be negative: " + interval); }
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * Resumes single-pass executions with a single start from the checkpoint
+     * in the given file
+     * 
+     * @param file
+     *            set to null to start from scratch
+     */
+    public void setResume(File file) {
+        this.resumeFile = file;
+    }
+
+    /**
+     * Sets the time budget in milliseconds, 0 for no limit. When the budget
+     * is exhausted, moving and splitting stops and the current clustering is
+     * finalized, such that the result is still k-anonymous.
+     * 
+     * @param timeLimit
+     */
+    public void setTimeLimit(long timeLimit) {
+        if (timeLimit < 0L) { throw new IllegalArgumentException("Time limit must not be negative: " + timeLimit); }
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Sets the measure of information loss which is optimized. Loss is
+     * optimized by default. Must not be called during an execution.
+     * 
+     * @param utilityMeasure
+     */
+    public void setUtilityMeasure(BenchmarkUtilityMeasure utilityMeasure) {
+        GeneralizationManager manager = arxInterface.getGeneralizationManager();
+        manager.setCostModel(getCostModel(manager, utilityMeasure));
+        this.utilityMeasure = utilityMeasure;
+    }
+
     /**
      * Sets omage
      * 
@@ -177,22 +604,301 @@ public class TassaAlgorithm extends BenchmarkAlgorithm {
         this.omega = omega;
     }
 
+    /**
+     * Creates a configured instance of the algorithm
+     * 
+     * @param seed
+     * @return
+     * @throws IOException
+     */
+    private TassaAlgorithmImpl createAlgorithm(long seed) throws IOException {
+        TassaAlgorithmImpl algorithm = new TassaAlgorithmImpl(arxInterface);
+        algorithm.setLogging(this.logging);
+        algorithm.setNumThreads(this.numThreads);
+        algorithm.setMatrixMemoryLimit(this.matrixMemoryLimit);
+        algorithm.setMerging(this.merging);
+        algorithm.setPartitioning(this.partitioning);
+        algorithm.setSeed(seed);
+        algorithm.setDeadline(this.deadline);
+        if (this.numStarts == 1) {
+            algorithm.setCheckpoint(this.checkpointFile, this.checkpointInterval);
+        }
+        if (this.snapshots) {
+            algorithm.setSnapshotListener(new TassaSnapshotListener() {
+                @Override
+                public void notify(TassaAlgorithmImpl snapshot) {
+                    publish(snapshot);
+                }
+            });
+        }
+        return algorithm;
+    }
+
+    /**
+     * Executes all runs concurrently and returns the one with the lowest
+     * information loss. The runs share the generalization manager, which is
+     * not modified.
+     * 
+     * @return
+     * @throws IOException
+     */
+    private TassaAlgorithmImpl executeStarts() throws IOException {
+
+        // Prepare
+        long seed = this.seed != null ? this.seed : new Random().nextLong();
+        List<TassaAlgorithmImpl> algorithms = new ArrayList<TassaAlgorithmImpl>();
+        for (int i = 0; i < numStarts; i++) {
+            algorithms.add(createAlgorithm(seed + i));
+        }
+
+        // Execute
+        if (numStarts == 1) {
+            Set<TassaCluster> input = null;
+            if (resumeFile != null) {
+                TassaCheckpoint checkpoint = TassaCheckpoint.read(resumeFile);
+                algorithms.get(0).resume(checkpoint);
+                input = checkpoint.getClustering(arxInterface.getGeneralizationManager());
+            }
+            algorithms.get(0).execute(alpha, omega, input);
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for (final TassaAlgorithmImpl algorithm : algorithms) {
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        algorithm.execute(alpha, omega, null);
+                        return null;
+                    }
+                });
+            }
+            invokeAll(tasks, numStarts);
+        }
+
+        // Select the best run and record all runs
+        TassaAlgorithmImpl result = algorithms.get(0);
+        for (TassaAlgorithmImpl algorithm : algorithms) {
+            if (algorithm.getFinalInformationLoss() < result.getFinalInformationLoss()) {
+                result = algorithm;
+            }
+        }
+        for (TassaAlgorithmImpl algorithm : algorithms) {
+            result.getStatistics().addStart(algorithm.getStatistics().getSeed(),
+                                            algorithm.getFinalInformationLoss());
+        }
+        return result;
+    }
+
+    /**
+     * Clusters a uniform sample of the records and assigns all other records
+     * to the resulting clusters. Each record is included with the sample
+     * fraction as probability, so a distinct tuple is included if at least
+     * one of its duplicates is.
+     * 
+     * @return
+     */
+    private TassaAlgorithmImpl executeSample() {
+
+        // Sample
+        long seed = this.seed != null ? this.seed : new Random().nextLong();
+        GeneralizationManager manager = arxInterface.getGeneralizationManager();
+        Random random = new Random(seed);
+        IntArrayList sample = new IntArrayList();
+        for (int record : manager.getRepresentatives()) {
+            double probability = 1d - Math.pow(1d - sampleFraction, manager.getWeight(record));
+            if (random.nextDouble() < probability) {
+                sample.add(record);
+            }
+        }
+        if (sample.isEmpty()) {
+            sample.add(manager.getRepresentatives()[0]);
+        }
+
+        // Cluster the sample
+        TassaCluster[] recordToCluster = new TassaCluster[manager.getNumRecords()];
+        TassaAlgorithmImpl algorithm = new TassaAlgorithmImpl(arxInterface,
+                                                              Arrays.copyOf(sample.elements(), sample.size()),
+                                                              recordToCluster);
+        algorithm.setLogging(this.logging);
+        algorithm.setNumThreads(this.numThreads);
+        algorithm.setPartitioning(this.partitioning);
+        algorithm.setSeed(seed);
+        algorithm.setDeadline(this.deadline);
+        algorithm.refine(alpha, omega, null);
+
+        // Assign all other records
+        TassaAlgorithmImpl result = new TassaAlgorithmImpl(arxInterface, manager.getRepresentatives(), recordToCluster);
+        result.setLogging(this.logging);
+        result.setNumThreads(this.numThreads);
+        result.setMatrixMemoryLimit(this.matrixMemoryLimit);
+        result.setMerging(this.merging);
+        result.setSeed(seed);
+        result.assign(algorithm, omega);
+        return result;
+    }
+
+    /**
+     * Clusters all shards concurrently and merges clusters with less than k
+     * records across shards. The shards share the assignment of records to
+     * clusters, as they cluster disjoint sets of records.
+     * 
+     * @return
+     */
+    private TassaAlgorithmImpl executeShards() {
+
+        // Prepare
+        long seed = this.seed != null ? this.seed : new Random().nextLong();
+        GeneralizationManager manager = arxInterface.getGeneralizationManager();
+        TassaCluster[] recordToCluster = new TassaCluster[manager.getNumRecords()];
+        final List<TassaAlgorithmImpl> shards = new ArrayList<TassaAlgorithmImpl>();
+        // Shards with less than 2k records result in a single cluster, which
+        // cannot be refined
+        int minSize = 2 * arxInterface.getK();
+        TassaSharding sharding = new TassaSharding(manager, Math.max(shardSize, minSize), minSize);
+        for (int[] records : sharding.getShards(manager.getRepresentatives())) {
+            TassaAlgorithmImpl shard = new TassaAlgorithmImpl(arxInterface, records, recordToCluster);
+            shard.setLogging(this.logging);
+            shard.setMatrixMemoryLimit(this.matrixMemoryLimit);
+            shard.setPartitioning(this.partitioning);
+            shard.setSeed(seed + shards.size());
+            shard.setDeadline(this.deadline);
+            shards.add(shard);
+        }
+
+        // Execute
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final TassaAlgorithmImpl shard : shards) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    shard.refine(alpha, omega, null);
+                    return null;
+                }
+            });
+        }
+        invokeAll(tasks, numThreads);
+
+        // Merge
+        TassaAlgorithmImpl result = new TassaAlgorithmImpl(arxInterface, manager.getRepresentatives(), recordToCluster);
+        result.setLogging(this.logging);
+        result.setMatrixMemoryLimit(this.matrixMemoryLimit);
+        result.setMerging(this.merging);
+        result.setSeed(seed);
+        result.merge(shards);
+        return result;
+    }
+
+    /**
+     * Returns the identifiers of the values of the given record
+     * 
+     * @param record
+     * @return
+     */
+    private int[] encode(String[] record) {
+
+        // Prepare
+        if (encoding == null) {
+            String[][] mapping = arxInterface.getDataManager()
+                                             .getDataGeneralized()
+                                             .getDictionary()
+                                             .getMapping();
+            encoding = new ArrayList<Map<String, Integer>>();
+            for (int attribute = 0; attribute < arxInterface.getNumAttributes(); attribute++) {
+                Map<String, Integer> values = new HashMap<String, Integer>();
+                for (int value = 0; value < mapping[attribute].length; value++) {
+                    values.put(mapping[attribute][value], value);
+                }
+                encoding.add(values);
+            }
+        }
+
+        // Encode
+        if (record.length != encoding.size()) { throw new IllegalArgumentException("Record must have " + encoding.size() +
+                                                                                   " values: " + record.length); }
+        int[] tuple = new int[record.length];
+        for (int attribute = 0; attribute < record.length; attribute++) {
+            Integer value = encoding.get(attribute).get(record[attribute]);
+            if (value == null) { throw new IllegalArgumentException("Unknown value of attribute '" +
+                                                                    arxInterface.getAttribute(attribute) + "': " +
+                                                                    record[attribute]); }
+            tuple[attribute] = value;
+        }
+        return tuple;
+    }
+
+    /**
+     * Executes the given tasks on a pool with the given parallelism
+     * 
+     * @param tasks
+     * @param parallelism
+     */
+    private void invokeAll(List<Callable<Void>> tasks, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Reports an intermediate result, if it improves on all previous ones.
+     * Concurrent runs may report snapshots at the same time.
+     * 
+     * @param snapshot
+     */
+    private synchronized void publish(TassaAlgorithmImpl snapshot) {
+        if (snapshot.getFinalInformationLoss() < this.snapshotLoss) {
+            this.snapshotLoss = snapshot.getFinalInformationLoss();
+            super.updated(getOutputTableWithoutHeader(arxInterface, snapshot.getOutputBuffer()), null);
+        }
+    }
+
+    /**
+     * Returns the cost model which optimizes the given measure
+     * 
+     * @param manager
+     * @param utilityMeasure
+     * @return
+     */
+    static TassaCostModel getCostModel(GeneralizationManager manager, BenchmarkUtilityMeasure utilityMeasure) {
+        switch (utilityMeasure) {
+        case LOSS:
+            return new TassaLossCostModel(manager);
+        case NMENTROPY:
+            return new TassaEntropyCostModel(manager);
+        case DISCERNIBILITY:
+            return new TassaDiscernibilityCostModel(manager);
+        default:
+            throw new IllegalArgumentException("Measure is not supported: " + utilityMeasure);
+        }
+    }
+
     /**
      * Helper
      * 
+     * @param arxInterface
      * @param buffer
      * @return
      */
-    private String[][] getOutputTableWithoutHeader(int[][] buffer) {
+    static String[][] getOutputTableWithoutHeader(ARXInterface arxInterface, int[][] buffer) {
 
-        String[][] result = new String[buffer.length][buffer[0].length];
+        String[][] result = new String[buffer.length][];
         String[][] mapping = arxInterface.getDataManager()
                                          .getDataGeneralized()
                                          .getDictionary()
                                          .getMapping();
 
         for (int dataEntry = 0; dataEntry < result.length; dataEntry++) {
-            for (int attribute = 0; attribute < result[0].length; attribute++) {
+            if (buffer[dataEntry] == null) {
+                // Retracted record
+                continue;
+            }
+            result[dataEntry] = new String[buffer[dataEntry].length];
+            for (int attribute = 0; attribute < result[dataEntry].length; attribute++) {
                 result[dataEntry][attribute] = mapping[attribute][buffer[dataEntry][attribute]];
             }
         }
@@ -1,17 +1,68 @@
 package org.deidentifier.arx.clustering;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.deidentifier.arx.ARXInterface;
 import org.deidentifier.arx.clustering.TassaLogger.TassaStep;
 
+import cern.colt.GenericSorting;
+import cern.colt.Swapper;
+import cern.colt.function.IntComparator;
 import cern.colt.list.IntArrayList;
 
 public class TassaAlgorithmImpl {
 
+    /**
+     * Strategy for creating the initial partitioning
+     */
+    public static enum TassaPartitioning {
+
+        /** Records are shuffled */
+        RANDOM,
+        /** Records are sorted by the paths of their values in the hierarchies */
+        SORTED
+    }
+
+    /**
+     * Strategy for merging clusters with size < k when finalizing
+     */
+    public static enum TassaMerging {
+
+        /** The closeness matrix is used, if it can be stored on the heap */
+        AUTOMATIC,
+        /** Closest pairs are merged, using a closeness matrix */
+        MATRIX,
+        /** Reciprocal nearest neighbors are merged, using linear memory */
+        NEAREST_NEIGHBOR_CHAIN
+    }
+
+    /**
+     * Listener for valid intermediate results
+     */
+    static interface TassaSnapshotListener {
+
+        /**
+         * Called with a k-anonymous snapshot of the current clustering
+         * 
+         * @param snapshot
+         */
+        void notify(TassaAlgorithmImpl snapshot);
+    }
+
+    /** Number of records per thread which are evaluated concurrently before committing moves */
+    private static final int         PARALLEL_BLOCK_SIZE = 256;
+
     /** TODO */
     private final TassaLogger        logger              = new TassaLogger(this);
     /** TODO */
@@ -20,33 +71,90 @@ public class TassaAlgorithmImpl {
     private double                   inititalInformationLoss;
     /** TODO */
     private double                   finalInformationLoss;
-    /** TODO */
-    private Set<TassaCluster>        currentClustering;
-    /** TODO */
-    private final int[][]            outputBuffer;
+    /** Registry of the clusters of the current clustering */
+    private TassaClusterRegistry     registry;
+    /** Transformed records. Grows geometrically when records are inserted, rows behind the last record are null */
+    private int[][]                  outputBuffer;
     /** TODO */
     private TassaCluster[]           recordToCluster;
     /** TODO */
     private int                      numRecords;
+    /** Records which represent distinct tuples. Duplicates are assigned to the cluster of their representative */
+    private final int[]              representatives;
+    /** Manager */
+    private final GeneralizationManager manager;
     /** TODO */
     private TassaStatistics          statistics          = new TassaStatistics();
     /** TODO */
     private TassaModificationManager modificationManager = new TassaModificationManager();
-    /** Generalization Level for each record */
+    /** Generalization Level for each record, with the same capacity as the output buffer */
     private int[][]                  generalizationLevels;
+    /** Index of clusters by the values they cover */
+    private TassaClusterIndex        index;
+    /** Queries of the index, one per thread */
+    private TassaClusterIndex.Query[] queries;
+    /** Number of threads used for moving records */
+    private int                      numThreads          = 1;
+    /** Pool used for moving records, if more than one thread is used */
+    private ForkJoinPool             pool;
+    /** Number of bytes above which the closeness matrix is stored in a memory-mapped file */
+    private long                     matrixMemoryLimit   = TassaClosenessMatrix.DEFAULT_MEMORY_LIMIT;
+    /** Strategy for creating the initial partitioning */
+    private TassaPartitioning        partitioning        = TassaPartitioning.RANDOM;
+    /** Strategy for merging clusters with size < k */
+    private TassaMerging             merging             = TassaMerging.AUTOMATIC;
+    /** Seed of the random initial partitioning */
+    private long                     seed                = new Random().nextLong();
+    /** Point in time at which moving and splitting stops, in milliseconds */
+    private long                     deadline            = Long.MAX_VALUE;
+    /** Listener for valid intermediate results, may be null */
+    private TassaSnapshotListener    snapshotListener;
+    /** File to which checkpoints are written, may be null */
+    private File                     checkpointFile;
+    /** Minimal time between two checkpoints, in milliseconds */
+    private long                     checkpointInterval;
+    /** Writer of checkpoints, only set during an execution */
+    private TassaCheckpoint.Writer   checkpointWriter;
+    /** First failure when writing a checkpoint in the last execution, may be null */
+    private IOException              checkpointFailure;
+    /** Point in time of the last checkpoint, in milliseconds */
+    private long                     checkpointTime;
+    /** Point in time at which the current execution has been started, in milliseconds */
+    private long                     executionStart;
+    /** Execution time of previous executions, if resumed from a checkpoint */
+    private long                     executionTimeOffset;
+    /** Checkpoint from which the next execution is resumed, may be null */
+    private TassaCheckpoint          resumedCheckpoint;
 
     /**
      * Creates a new instance
      * 
      * @param iface
-     * @throws IOException
      */
-    TassaAlgorithmImpl(ARXInterface iface) throws IOException {
+    TassaAlgorithmImpl(ARXInterface iface) {
+        this(iface,
+             iface.getGeneralizationManager().getRepresentatives(),
+             new TassaCluster[iface.getGeneralizationManager().getNumRecords()]);
+    }
+
+    /**
+     * Creates a new instance, which only clusters the given representatives
+     * of distinct tuples. Instances which cluster disjoint sets of records
+     * may share the assignment of records to clusters, also when being
+     * executed concurrently.
+     * 
+     * @param iface
+     * @param representatives
+     * @param recordToCluster
+     */
+    TassaAlgorithmImpl(ARXInterface iface, int[] representatives, TassaCluster[] recordToCluster) {
         this.arxinterface = iface;
-        this.outputBuffer = iface.getBuffer();
-        this.generalizationLevels = new int[outputBuffer.length][outputBuffer[0].length];
-        this.recordToCluster = new TassaCluster[arxinterface.getDataQI().length];
-        this.numRecords = iface.getDataQI().length;
+        this.manager = iface.getGeneralizationManager();
+        this.representatives = representatives;
+        this.recordToCluster = recordToCluster;
+        for (int record : representatives) {
+            this.numRecords += manager.getWeight(record);
+        }
     }
 
     /**
@@ -90,94 +198,172 @@ public class TassaAlgorithmImpl {
      * Modifies the clustering to ensure that all clusters have a given minimal
      * size
      * 
-     * @param clustering
      * @param clusterSize
      * @return
      */
-    private void ensureClustersHaveSize(Set<TassaCluster> clustering, int clusterSize) {
+    private void ensureClustersHaveSize(int clusterSize) {
 
         // Log
         logger.log();
 
         // Prepare
-        Set<TassaCluster> smallClusters = new HashSet<TassaCluster>();
-        Set<TassaCluster> largeClusters = new HashSet<TassaCluster>();
-        for (final TassaCluster cluster : clustering) {
-            if (cluster.getSize() < clusterSize) {
-                smallClusters.add(cluster);
-            } else {
-                largeClusters.add(cluster);
+        List<TassaCluster> smallClusters = new ArrayList<TassaCluster>();
+        for (int i = 0; i < registry.size(); i++) {
+            if (registry.getSize(registry.getId(i)) < clusterSize) {
+                smallClusters.add(registry.getCluster(i));
             }
         }
 
-        TassaClosenessMatrix matrix = new TassaClosenessMatrix(smallClusters);
-        TassaPair<TassaCluster, TassaCluster> pair = matrix.getClosestTwoClusters();
-
-        // As long as there are clusters with size < k
-        // merge closest two clusters and either
-        // if size >= k, add them to output, or
-        // if size < k, process them further
-        while (pair != null) {
-
-            // Log
-            logger.log();
+        // Merge
+        mergeClusters(smallClusters, clusterSize, null);
+    }
 
-            // Merge closest pair
-            assignRecordsToCluster(pair.second.getRecords(), pair.first);
-            pair.first.addCluster(pair.second);
-            smallClusters.remove(pair.second);
-            matrix.setMerged(pair.first, pair.second);
+    /**
+     * Merges the given clusters, which must be the only ones with size <
+     * clusterSize, until they have this size. The closest two of them are
+     * merged as long as possible, and a last remaining one is merged with its
+     * closest cluster.
+     * 
+     * @param smallClusters
+     * @param clusterSize
+     * @param targets
+     *            clusters into which others have been merged are added to
+     *            this set, may be null
+     */
+    private void mergeClusters(List<TassaCluster> smallClusters, int clusterSize, Set<TassaCluster> targets) {
 
-            if (pair.first.getSize() >= clusterSize) {
-                largeClusters.add(pair.first);
-                smallClusters.remove(pair.first);
-                matrix.setRemoved(pair.first);
+        // Prepare
+        int numSmallClusters = smallClusters.size();
+
+        // Choose strategy
+        boolean chains = merging == TassaMerging.NEAREST_NEIGHBOR_CHAIN ||
+                         (merging == TassaMerging.AUTOMATIC &&
+                          (long) numSmallClusters * (numSmallClusters - 1) / 2 * 8L > matrixMemoryLimit);
+        ForkJoinPool pool = !chains && numThreads > 1 ? new ForkJoinPool(numThreads) : null;
+        try {
+            TassaMergeQueue queue = chains ? new TassaNearestNeighborChain(smallClusters)
+                                            : new TassaClosenessMatrix(smallClusters, matrixMemoryLimit, pool);
+            try {
+                TassaPair<TassaCluster, TassaCluster> pair = queue.getClosestTwoClusters();
+
+                // As long as there are clusters with size < k
+                // merge closest two clusters and either
+                // if size >= k, add them to output, or
+                // if size < k, process them further
+                while (pair != null) {
+
+                    // Log
+                    logger.log();
+
+                    // Merge closest pair
+                    assignRecordsToCluster(pair.second.getRecords(), pair.first);
+                    pair.first.addCluster(pair.second);
+                    queue.setMerged(pair.first, pair.second);
+                    unregister(pair.second);
+                    update(pair.first);
+                    numSmallClusters--;
+                    if (targets != null) {
+                        targets.add(pair.first);
+                    }
+
+                    if (pair.first.getSize() >= clusterSize) {
+                        queue.setRemoved(pair.first);
+                        numSmallClusters--;
+                    }
+
+                    // Update statistics
+                    statistics.incClustersMerged();
+
+                    // Update
+                    pair = queue.getClosestTwoClusters();
+                }
+            } finally {
+                queue.close();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
-
-            // Update statistics
-            statistics.incClustersMerged();
-
-            // Update
-            pair = matrix.getClosestTwoClusters();
         }
 
         // If there is one cluster left, merge it with the closest cluster from
         // the large clusters
-        if (smallClusters.size() == 1) {
+        if (numSmallClusters == 1) {
 
             // Log
             logger.log();
 
+            // Find
+            TassaCluster cluster1 = null;
+            for (TassaCluster cluster : smallClusters) {
+                if (cluster.id != -1 && cluster.getSize() < clusterSize) {
+                    cluster1 = cluster;
+                }
+            }
+
             // Perform
-            TassaCluster cluster1 = smallClusters.iterator().next();
-            TassaCluster cluster2 = getClosestClusterForCluster(largeClusters, cluster1);
+            TassaCluster cluster2 = chains || targets != null ? getClosestClusterForCluster(cluster1, clusterSize)
+                                                              : getClosestClusterForCluster(cluster1);
             assignRecordsToCluster(cluster1.getRecords(), cluster2);
             cluster2.addCluster(cluster1);
-            smallClusters.remove(cluster1);
+            unregister(cluster1);
+            update(cluster2);
+            if (targets != null) {
+                targets.add(cluster2);
+            }
 
             // Update statistics
             statistics.incClustersMerged();
         }
-
-        // Return
-        clustering.clear();
-        clustering.addAll(largeClusters);
     }
 
     /**
      * Returns the cluster which is closest to the given one
      * 
-     * @param clustering
      * @param cluster
      * @return
      */
-    private TassaCluster getClosestClusterForCluster(Set<TassaCluster> clustering,
-                                                     TassaCluster cluster) {
+    private TassaCluster getClosestClusterForCluster(TassaCluster cluster) {
+
+        double loss = Double.MAX_VALUE;
+        TassaCluster result = null;
+
+        for (int i = 0; i < registry.size(); i++) {
+            TassaCluster cluster2 = registry.getCluster(i);
+            if (cluster != cluster2) {
+                // Calculate weighted cost.
+                double value = cluster.getInformationLossWhenAdding(cluster2);
+                if (value < loss) {
+                    loss = value;
+                    result = cluster2;
+                }
+            }
+        }
+        if (result == null) { throw new IllegalStateException("Should not happen!"); }
+        return result;
+    }
+
+    /**
+     * Returns the cluster which is closest to the given one, if all other
+     * clusters have at least the given size. Clusters are visited in ascending
+     * order of their lower bounds, until the bound implies that merging
+     * results in a higher information loss than the current optimum.
+     * 
+     * @param cluster
+     * @param minSize
+     * @return
+     */
+    private TassaCluster getClosestClusterForCluster(TassaCluster cluster, int minSize) {
 
         double loss = Double.MAX_VALUE;
         TassaCluster result = null;
+        int size = cluster.getSize() + minSize;
 
-        for (TassaCluster cluster2 : clustering) {
+        for (int rank = 0; rank < index.getNumClusters(); rank++) {
+            if (index.getLowerBound(rank) * size > loss) {
+                break;
+            }
+            TassaCluster cluster2 = index.getClusterByRank(rank);
             if (cluster != cluster2) {
                 // Calculate weighted cost.
                 double value = cluster.getInformationLossWhenAdding(cluster2);
@@ -194,33 +380,60 @@ public class TassaAlgorithmImpl {
     /**
      * Returns the cluster which is closest to the given record
      * 
-     * @param clustering
-     * @param source
+     * @param query
+     * @param source null, if the record is not assigned to a cluster
      * @param record
+     * @param counters number of cost evaluations performed and pruned
      * @return
      */
-    private TassaPair<TassaCluster, Double> getClosestClusterForRecord(Set<TassaCluster> clustering,
+    private TassaPair<TassaCluster, Double> getClosestClusterForRecord(TassaClusterIndex.Query query,
                                                                        TassaCluster source,
-                                                                       int record) {
+                                                                       int record,
+                                                                       long[] counters) {
 
         double delta = Double.MAX_VALUE;
         double loss = Double.MAX_VALUE;
         TassaCluster result = null;
+        long evaluations = 0;
+        long pruned = 0;
+        int weight = manager.getWeight(record);
+
+        // Visit clusters which cover the record in most attributes first, to
+        // find a good candidate early. Then visit all other clusters in
+        // ascending order of their lower bounds, until the bound exceeds the
+        // current optimum.
+        int candidates = query.getCandidates(record);
+        int clusters = index.getNumClusters();
+        for (int i = 0; i < candidates + clusters; i++) {
+
+            TassaCluster cluster;
+            if (i < candidates) {
+                cluster = query.getCandidate(i);
+            } else {
+                int rank = i - candidates;
+                if (delta != Double.MAX_VALUE && index.getLowerBound(rank) * weight > delta) {
+                    pruned += getNumPruned(query, source, candidates, rank);
+                    break;
+                }
+                cluster = index.getClusterByRank(rank);
+                if (query.isCandidate(cluster)) {
+                    continue;
+                }
+            }
 
-        for (TassaCluster cluster : clustering) {
-
-            if (cluster != source && (modificationManager.isModified(source) ||
-                                      modificationManager.isModified(cluster))) {
+            if (isComparable(source, cluster)) {
 
                 // Skip if lower bound is already higher then the current
                 // optimum
                 if (delta != Double.MAX_VALUE &&
-                    cluster.getLowerBoundForAdditionalInformationLoss() > delta) {
+                    registry.getLowerBound(cluster.id) * weight > delta) {
+                    pruned++;
                     continue;
                 }
 
+                evaluations++;
                 double _loss = cluster.getInformationLossWhenAdding(record);
-                double _delta = _loss - cluster.getInformationLoss();
+                double _delta = _loss - registry.getInformationLoss(cluster.id);
                 if (_delta < 0d) { throw new IllegalStateException("Delta may never be <0"); }
                 if (_delta < delta) {
                     loss = _loss;
@@ -231,9 +444,55 @@ public class TassaAlgorithmImpl {
         }
 
         if (result == null) { throw new IllegalStateException("There may never be no closest cluster"); }
+        counters[0] += evaluations;
+        counters[1] += pruned;
         return new TassaPair<TassaCluster, Double>(result, loss);
     }
 
+    /**
+     * Returns the number of clusters from the given rank on, which would have
+     * been evaluated if the scan had not been cut off. Candidates have already
+     * been visited. If the source has not been modified, only modified
+     * clusters would have been evaluated. They cannot be counted without
+     * visiting them, so nothing is counted in this case.
+     * 
+     * @param query
+     * @param source null, if the record is not assigned to a cluster
+     * @param candidates number of candidates of the query
+     * @param rank rank at which the scan has been cut off
+     * @return
+     */
+    private long getNumPruned(TassaClusterIndex.Query query, TassaCluster source, int candidates, int rank) {
+        if (source != null && !modificationManager.isModified(source)) {
+            return 0;
+        }
+        long result = index.getNumClusters() - rank;
+        for (int i = 0; i < candidates; i++) {
+            if (index.getRank(query.getCandidate(i)) >= rank) {
+                result--;
+            }
+        }
+        if (source != null && !query.isCandidate(source) && index.getRank(source) >= rank) {
+            result--;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether moving a record from the source to the given cluster
+     * must be evaluated. This is only the case if one of both clusters has
+     * been modified.
+     * 
+     * @param source null, if the record is not assigned to a cluster
+     * @param cluster
+     * @return
+     */
+    private boolean isComparable(TassaCluster source, TassaCluster cluster) {
+        return cluster != source && (source == null ||
+                                     modificationManager.isModified(source) ||
+                                     modificationManager.isModified(cluster));
+    }
+
     /**
      * Returns the cluster to which the given record is assigned
      * 
@@ -261,17 +520,36 @@ public class TassaAlgorithmImpl {
 
         if (input != null) {
 
-            // Given
-            result = input;
+            // Given, but only representatives of distinct tuples are clustered
+            result = new LinkedHashSet<TassaCluster>();
+            for (TassaCluster cluster : input) {
+                IntArrayList records = new IntArrayList(cluster.getRecords().size());
+                for (int i = 0; i < cluster.getRecords().size(); i++) {
+                    int record = cluster.getRecords().getQuick(i);
+                    if (manager.getWeight(record) > 0) {
+                        records.add(record);
+                    }
+                }
+                if (records.size() == cluster.getRecords().size()) {
+                    result.add(cluster);
+                } else if (!records.isEmpty()) {
+                    result.add(new TassaCluster(manager, records));
+                }
+            }
 
         } else {
 
-            // Random
+            // Random or sorted
             int k = arxinterface.getK();
             int k_0 = (int) Math.floor(alpha * k) > 0 ? (int) Math.floor(alpha * k) : 1;
-            result = this.getRandomPartitioning(arxinterface.getGeneralizationManager(),
-                                                numRecords,
-                                                k_0);
+            switch (partitioning) {
+            case SORTED:
+                result = this.getSortedPartitioning(manager, k_0);
+                break;
+            default:
+                result = this.getRandomPartitioning(manager, k_0);
+                break;
+            }
         }
 
         // Update cluster assignments
@@ -284,45 +562,137 @@ public class TassaAlgorithmImpl {
     }
 
     /**
-     * Returns an initial random partitioning for the given number of records
+     * Cuts the given order of the representatives of distinct tuples into
+     * clusters. Clusters are filled until they represent the given number of
+     * records.
      * 
      * @param manager
-     * @param numRecords
+     * @param recordIds
      * @param k
      * @return
      */
-    private Set<TassaCluster> getRandomPartitioning(GeneralizationManager manager,
-                                                    int numRecords,
-                                                    int k) {
+    private Set<TassaCluster> getPartitioning(GeneralizationManager manager,
+                                              IntArrayList recordIds,
+                                              int k) {
 
         // Prepare
-        IntArrayList recordIds = new IntArrayList(numRecords);
-        for (int i = 0; i < numRecords; i++) {
-            recordIds.add(i);
-        }
-        recordIds.shuffle();
         int offset = 0;
 
         // Calculate
-        final int numberOfClusters = (int) Math.floor(numRecords / k);
+        final int numberOfClusters = Math.max(1, (int) Math.floor(numRecords / k));
         final int additionalRecords = numRecords % k;
 
         // Build
-        Set<TassaCluster> result = new HashSet<TassaCluster>();
-        for (int i = 0; i < numberOfClusters; i++) {
+        Set<TassaCluster> result = new LinkedHashSet<TassaCluster>();
+        for (int i = 0; i < numberOfClusters && offset < recordIds.size(); i++) {
             int clusterSize = i < additionalRecords ? k + 1 : k;
-            TassaCluster cluster = new TassaCluster(manager,
-                                                    (IntArrayList) recordIds.partFromTo(offset,
-                                                                                        offset + clusterSize -
-                                                                                                1));
-            result.add(cluster);
-            offset += clusterSize;
+            IntArrayList records = new IntArrayList(clusterSize);
+            int size = 0;
+            while (offset < recordIds.size() && (size < clusterSize || i == numberOfClusters - 1)) {
+                int record = recordIds.getQuick(offset++);
+                records.add(record);
+                size += manager.getWeight(record);
+            }
+            result.add(new TassaCluster(manager, records));
         }
 
         // Return
         return result;
     }
 
+    /**
+     * Returns an initial random partitioning, which is determined by the seed
+     * 
+     * @param manager
+     * @param k
+     * @return
+     */
+    private Set<TassaCluster> getRandomPartitioning(GeneralizationManager manager,
+                                                    int k) {
+
+        // Shuffle
+        Random random = new Random(seed);
+        int[] elements = representatives.clone();
+        for (int i = elements.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int element = elements[i];
+            elements[i] = elements[j];
+            elements[j] = element;
+        }
+        return getPartitioning(manager, new IntArrayList(elements), k);
+    }
+
+    /**
+     * Returns an initial partitioning in which neighboring records share
+     * generalized values. Records are sorted by the paths of their values from
+     * the roots of the hierarchies to the leaves. Attributes with small domains
+     * are compared first, as they form the longest runs of equal values.
+     * 
+     * @param manager
+     * @param k
+     * @return
+     */
+    private Set<TassaCluster> getSortedPartitioning(final GeneralizationManager manager,
+                                                    int k) {
+
+        // Order attributes by domain size
+        final int numAttributes = manager.getNumAttributes();
+        final int[] attributes = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            attributes[i] = i;
+        }
+        GenericSorting.mergeSort(0, numAttributes, new IntComparator() {
+            @Override
+            public int compare(int a, int b) {
+                return Double.compare(manager.getDomainSize(attributes[a]),
+                                      manager.getDomainSize(attributes[b]));
+            }
+        }, new Swapper() {
+            @Override
+            public void swap(int a, int b) {
+                int attribute = attributes[a];
+                attributes[a] = attributes[b];
+                attributes[b] = attribute;
+            }
+        });
+
+        // Sort records
+        final int[] elements = representatives.clone();
+        GenericSorting.mergeSort(0, elements.length, new IntComparator() {
+            @Override
+            public int compare(int a, int b) {
+                for (int i = 0; i < numAttributes; i++) {
+                    int[] path1 = manager.getPath(elements[a], attributes[i]);
+                    int[] path2 = manager.getPath(elements[b], attributes[i]);
+                    for (int level = path1.length - 1; level >= 0; level--) {
+                        if (path1[level] != path2[level]) {
+                            return path1[level] < path2[level] ? -1 : 1;
+                        }
+                    }
+                }
+                return 0;
+            }
+        }, new Swapper() {
+            @Override
+            public void swap(int a, int b) {
+                int element = elements[a];
+                elements[a] = elements[b];
+                elements[b] = element;
+            }
+        });
+        return getPartitioning(manager, new IntArrayList(elements), k);
+    }
+
+    /**
+     * Adds a cluster to the current clustering
+     * 
+     * @param cluster
+     */
+    private void register(TassaCluster cluster) {
+        registry.add(cluster);
+        index.add(cluster);
+    }
+
     /**
      * 
      * @param oldValue
@@ -338,62 +708,199 @@ public class TassaAlgorithmImpl {
     }
 
     /**
-     * Moves all records within the given clustering, if it decreases the
+     * Moves the record to the given cluster, if it decreases the average
+     * information loss or if the record is the last one in its cluster
+     * 
+     * @param record
+     * @param targetCluster
+     * @return whether the record has been moved
+     */
+    private boolean moveRecord(int record, TassaPair<TassaCluster, Double> targetCluster) {
+
+        // Check if it improves the overall costs. Take cluster sizes into
+        // account.
+        TassaCluster sourceCluster = getCluster(record);
+        double inputGC = sourceCluster.getInformationLoss() +
+                         targetCluster.first.getInformationLoss();
+        double outputGC = sourceCluster.getInformationLossWhenRemoving(record) +
+                          targetCluster.second;
+
+        // If yes or if source cluster is singleton, move. Clusters of a
+        // single distinct tuple with duplicates are not singletons.
+        if (isSignficantlySmaller(inputGC,
+                                  outputGC,
+                                  sourceCluster.getSize() + targetCluster.first.getSize()) ||
+            sourceCluster.getSize() == 1) {
+
+            // Update statistics
+            statistics.incRecordsMoved();
+
+            // Move
+            targetCluster.first.addRecord(record);
+            sourceCluster.removeRecord(record);
+            assignRecordToCluster(record, targetCluster.first);
+            update(targetCluster.first);
+
+            // Set modified
+            this.modificationManager.setModified(sourceCluster);
+            this.modificationManager.setModified(targetCluster.first);
+
+            // Remove if empty
+            if (sourceCluster.getRecords().isEmpty()) {
+                unregister(sourceCluster);
+            } else {
+                update(sourceCluster);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves all records within the current clustering, if it decreases the
      * average information loss
      * 
-     * @param clustering
      * @return
      */
-    private boolean moveRecords(Set<TassaCluster> clustering) {
+    private boolean moveRecords() {
 
         // Log
         logger.log();
 
+        // Parallel
+        long[] counters = new long[2];
+        if (pool != null) {
+            boolean modified = moveRecordsInParallel(counters);
+            statistics.incCostEvaluations(counters[0], counters[1]);
+            return modified;
+        }
+
         // Flag to detect modification
         boolean modified = false;
 
         // Loop
-        for (int record = 0; record < numRecords; record++) {
+        for (int i = 0; i < representatives.length; i++) {
+
+            // Stop, if the deadline has passed
+            if ((i & 0xff) == 0) {
+                if (isDeadlineExceeded()) {
+                    break;
+                }
+                checkpoint(statistics.getIterations() - 1, false);
+            }
+
+            // Stop, if all records have been moved into one cluster
+            if (registry.size() < 2) {
+                break;
+            }
 
             // Log
             logger.log();
+            int record = representatives[i];
 
-            // Find closest cluster
+            // Find closest cluster and move
             TassaCluster sourceCluster = getCluster(record);
-            TassaPair<TassaCluster, Double> targetCluster = getClosestClusterForRecord(clustering,
+            TassaPair<TassaCluster, Double> targetCluster = getClosestClusterForRecord(queries[0],
                                                                                        sourceCluster,
-                                                                                       record);
-
-            // Check if it improves the overall costs. Take cluster sizes into
-            // account.
-            double inputGC = sourceCluster.getInformationLoss() +
-                             targetCluster.first.getInformationLoss();
-            double outputGC = sourceCluster.getInformationLossWhenRemoving(record) +
-                              targetCluster.second;
+                                                                                       record,
+                                                                                       counters);
+            modified |= moveRecord(record, targetCluster);
+        }
 
-            // If yes or if source cluster is singleton, move
-            if (isSignficantlySmaller(inputGC,
-                                      outputGC,
-                                      sourceCluster.getSize() + targetCluster.first.getSize()) ||
-                sourceCluster.getSize() == 1) {
+        // Return
+        statistics.incCostEvaluations(counters[0], counters[1]);
+        return modified;
+    }
 
-                // Update statistics
-                statistics.incRecordsMoved();
+    /**
+     * Moves all records within the current clustering, if it decreases the
+     * average information loss. Blocks of records are processed in two phases:
+     * first, the closest clusters are searched concurrently, while the
+     * clustering is not modified. Then, the proposed moves are performed one
+     * after another. If the source or the target of a move has been modified
+     * in this phase, the closest cluster is searched again. Results do only
+     * depend on the number of threads, not on scheduling.
+     * 
+     * @param counters
+     * @return
+     */
+    private boolean moveRecordsInParallel(long[] counters) {
 
-                // Move
-                targetCluster.first.addRecord(record);
-                sourceCluster.removeRecord(record);
-                assignRecordToCluster(record, targetCluster.first);
+        // Prepare
+        boolean modified = false;
+        final int blockSize = PARALLEL_BLOCK_SIZE * numThreads;
+        final TassaCluster[] targets = new TassaCluster[blockSize];
+        final double[] losses = new double[blockSize];
+        int[] changed = new int[registry.getCapacity()];
+        int block = 0;
+
+        // For each block
+        for (int offset = 0; offset < representatives.length && registry.size() > 1 && !isDeadlineExceeded(); offset += blockSize) {
+
+            // Propose
+            final int blockOffset = offset;
+            final int blockLength = Math.min(blockSize, representatives.length - offset);
+            List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+            for (int thread = 0; thread < numThreads; thread++) {
+                final TassaClusterIndex.Query query = queries[thread];
+                final int from = thread * blockLength / numThreads;
+                final int to = (thread + 1) * blockLength / numThreads;
+                tasks.add(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        long[] counters = new long[2];
+                        for (int i = from; i < to; i++) {
+                            int record = representatives[blockOffset + i];
+                            TassaPair<TassaCluster, Double> target = getClosestClusterForRecord(query,
+                                                                                                getCluster(record),
+                                                                                                record,
+                                                                                                counters);
+                            targets[i] = target.first;
+                            losses[i] = target.second;
+                        }
+                        return counters;
+                    }
+                });
+            }
+            try {
+                for (Future<long[]> future : pool.invokeAll(tasks)) {
+                    long[] result = future.get();
+                    counters[0] += result[0];
+                    counters[1] += result[1];
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
 
-                // Remove if empty
-                if (sourceCluster.getSize() == 0) {
-                    clustering.remove(sourceCluster);
+            // Commit
+            block++;
+            checkpoint(statistics.getIterations() - 1, false);
+            for (int i = 0; i < blockLength && registry.size() > 1; i++) {
+
+                // Log
+                logger.log();
+
+                // Re-validate, if clusters have been modified in the meantime
+                int record = representatives[blockOffset + i];
+                TassaCluster sourceCluster = getCluster(record);
+                TassaPair<TassaCluster, Double> targetCluster;
+                if (changed[sourceCluster.id] == block || targets[i].id == -1 || changed[targets[i].id] == block) {
+                    targetCluster = getClosestClusterForRecord(queries[0],
+                                                               sourceCluster,
+                                                               record,
+                                                               counters);
+                } else {
+                    targetCluster = new TassaPair<TassaCluster, Double>(targets[i], losses[i]);
                 }
 
-                // Set modified
-                this.modificationManager.setModified(sourceCluster);
-                this.modificationManager.setModified(targetCluster.first);
-                modified = true;
+                // Move
+                int sourceId = sourceCluster.id;
+                int targetId = targetCluster.first.id;
+                if (moveRecord(record, targetCluster)) {
+                    changed[sourceId] = block;
+                    changed[targetId] = block;
+                    modified = true;
+                }
             }
         }
 
@@ -404,25 +911,37 @@ public class TassaAlgorithmImpl {
     /**
      * Splits all clusters
      * 
-     * @param clustering
+     * @param omega
      * @return
      */
-    private boolean splitClusters(Set<TassaCluster> clustering, double omega) {
-
-        // Prepare
-        boolean modified = false;
-
-        // Collect clusters with size > w*k
-        Set<TassaCluster> largeClusters = new HashSet<TassaCluster>();
-        Iterator<TassaCluster> iter = clustering.iterator();
-        while (iter.hasNext()) {
-            TassaCluster cluster = iter.next();
-            if (cluster.getSize() > omega * arxinterface.getK()) {
-                largeClusters.add(cluster);
-                iter.remove();
+    private boolean splitClusters(double omega) {
+
+        // Collect clusters with size > w*k, which consist of more than one distinct tuple
+        List<TassaCluster> largeClusters = new ArrayList<TassaCluster>();
+        for (int i = 0; i < registry.size() && !isDeadlineExceeded(); i++) {
+            if (registry.getSize(registry.getId(i)) > omega * arxinterface.getK() &&
+                registry.getCluster(i).getRecords().size() > 1) {
+                largeClusters.add(registry.getCluster(i));
             }
         }
 
+        // Split them
+        return !splitClusters(largeClusters, omega).isEmpty();
+    }
+
+    /**
+     * Splits the given clusters until all parts have size <= w*k or consist
+     * of a single distinct tuple
+     * 
+     * @param largeClusters
+     * @param omega
+     * @return the resulting parts
+     */
+    private List<TassaCluster> splitClusters(List<TassaCluster> largeClusters, double omega) {
+
+        // Prepare
+        List<TassaCluster> result = new ArrayList<TassaCluster>();
+
         // Split them
         while (!largeClusters.isEmpty()) {
 
@@ -430,11 +949,12 @@ public class TassaAlgorithmImpl {
             logger.log();
 
             // Split one cluster
-            TassaCluster cluster1 = largeClusters.iterator().next();
+            TassaCluster cluster1 = largeClusters.remove(largeClusters.size() - 1);
             TassaCluster cluster2 = cluster1.splitCluster();
+            update(cluster1);
+            register(cluster2);
 
             // Set modified
-            modified = true;
             this.modificationManager.setModified(cluster1);
             this.modificationManager.setModified(cluster2);
 
@@ -442,23 +962,44 @@ public class TassaAlgorithmImpl {
             statistics.incClustersSplit();
 
             // Check first cluster
-            if (cluster1.getSize() <= omega * arxinterface.getK()) {
-                largeClusters.remove(cluster1);
-                clustering.add(cluster1);
+            if (cluster1.getSize() <= omega * arxinterface.getK() || cluster1.getRecords().size() == 1) {
                 assignRecordsToCluster(cluster1.getRecords(), cluster1);
+                result.add(cluster1);
+            } else {
+                largeClusters.add(cluster1);
             }
 
             // Check second cluster
-            if (cluster2.getSize() <= omega * arxinterface.getK()) {
-                clustering.add(cluster2);
+            if (cluster2.getSize() <= omega * arxinterface.getK() || cluster2.getRecords().size() == 1) {
                 assignRecordsToCluster(cluster2.getRecords(), cluster2);
+                result.add(cluster2);
             } else {
                 largeClusters.add(cluster2);
             }
         }
 
         // Return
-        return modified;
+        return result;
+    }
+
+    /**
+     * Removes a cluster from the current clustering
+     * 
+     * @param cluster
+     */
+    private void unregister(TassaCluster cluster) {
+        index.remove(cluster);
+        registry.remove(cluster);
+    }
+
+    /**
+     * Updates a cluster of the current clustering after it has been modified
+     * 
+     * @param cluster
+     */
+    private void update(TassaCluster cluster) {
+        registry.update(cluster);
+        index.update(cluster);
     }
 
     /**
@@ -472,69 +1013,589 @@ public class TassaAlgorithmImpl {
      */
          void execute(double alpha, double omega, Set<TassaCluster> input) {
 
-        // Check
-        this.checkParameters(alpha, omega);
-
-        // Initial step: create random clustering
-        long time = System.currentTimeMillis();
-        this.currentClustering = this.getInitialPartitioning(alpha, omega, input);
-        this.inititalInformationLoss = getTotalInformationLoss();
-        this.modificationManager.setModified(this.currentClustering);
+        // Move and split
+        refine(alpha, omega, input);
 
         // Log
-        logger.next(TassaStep.INITIALIZE);
+        logger.next(TassaStep.FINALIZE);
 
-        // Intermediate steps: move and split
-        boolean modified = true;
-        while (modified) {
-            modified = false;
+        // Final step: ensure that all clusters have size >= k
+        finish();
 
-            // Log
-            double previousLoss = getTotalInformationLoss();
-            logger.next(TassaStep.MOVE_RECORDS);
-            modified |= moveRecords(this.currentClustering);
-            double newLoss = getTotalInformationLoss();
+        // Log
+        logger.done();
 
-            // Log
-            logger.next(TassaStep.SPLIT_CLUSTERS);
-            modified |= splitClusters(this.currentClustering, omega);
+        // Statistics
+        setStatistics();
+    }
 
-            // Break
-            if (!isSignficantlySmaller(previousLoss, newLoss, this.numRecords)) {
-                break;
+    /**
+     * Assigns all records, which are not clustered by the given sample, to the
+     * cluster of the sample with the least additional information loss. The
+     * closest clusters are searched concurrently, while the clusters are not
+     * modified. Afterwards, clusters with size > omega*k are split and
+     * clusters with size < k are merged. The sample must have been refined by
+     * an instance which shares the assignment of records to clusters with this
+     * one. The initial information loss is extrapolated from the sample.
+     * 
+     * @param sample
+     * @param omega
+     */
+    void assign(TassaAlgorithmImpl sample, double omega) {
+
+        // Collect clusters of the sample
+        this.executionStart = sample.executionStart;
+        this.executionTimeOffset = 0L;
+        this.registry = new TassaClusterRegistry(manager.getNumAttributes());
+        this.index = new TassaClusterIndex(manager, registry);
+        for (int i = 0; i < sample.registry.size(); i++) {
+            TassaCluster cluster = sample.registry.getCluster(i);
+            cluster.id = -1;
+            register(cluster);
+            this.modificationManager.setModified(cluster);
+        }
+        this.inititalInformationLoss = sample.inititalInformationLoss * this.numRecords / sample.numRecords;
+        this.statistics.merge(sample.statistics);
+        this.statistics.incIterations();
+
+        // Collect remaining records
+        IntArrayList remaining = new IntArrayList();
+        for (int record : representatives) {
+            if (getCluster(record) == null) {
+                remaining.add(record);
             }
+        }
+        final int[] records = remaining.elements();
+        final int numRemaining = remaining.size();
+        final TassaCluster[] targets = new TassaCluster[numRemaining];
 
-            // Prepare
-            this.modificationManager.prepareNextIteration();
+        // Log
+        logger.next(TassaStep.MOVE_RECORDS);
+
+        // Search closest clusters
+        long[] counters = new long[2];
+        List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+        for (int thread = 0; thread < numThreads; thread++) {
+            final TassaClusterIndex.Query query = this.index.newQuery();
+            final int from = (int) ((long) thread * numRemaining / numThreads);
+            final int to = (int) ((long) (thread + 1) * numRemaining / numThreads);
+            tasks.add(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    long[] counters = new long[2];
+                    for (int i = from; i < to; i++) {
+                        targets[i] = getClosestClusterForRecord(query, null, records[i], counters).first;
+                    }
+                    return counters;
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            for (Future<long[]> future : pool.invokeAll(tasks)) {
+                long[] result = future.get();
+                counters[0] += result[0];
+                counters[1] += result[1];
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+        statistics.incCostEvaluations(counters[0], counters[1]);
+
+        // Assign, and update each modified cluster once
+        boolean[] changed = new boolean[registry.getCapacity()];
+        for (int i = 0; i < numRemaining; i++) {
+            targets[i].addRecord(records[i]);
+            assignRecordToCluster(records[i], targets[i]);
+            changed[targets[i].id] = true;
+        }
+        for (int i = 0; i < registry.size(); i++) {
+            if (changed[registry.getId(i)]) {
+                update(registry.getCluster(i));
+            }
         }
 
+        // Log
+        logger.next(TassaStep.SPLIT_CLUSTERS);
+
+        // Repair: split clusters with size > omega*k
+        splitClusters(omega);
+
         // Log
         logger.next(TassaStep.FINALIZE);
 
-        // Final step: ensure that all clusters have size >= k
-        ensureClustersHaveSize(this.currentClustering, this.arxinterface.getK());
-        this.finalInformationLoss = getTotalInformationLoss();
+        // Repair: merge clusters with size < k
+        finish();
+
+        // Log
+        logger.done();
+
+        // Statistics
+        setStatistics();
+    }
+
+    /**
+     * Ensures that all clusters of the given shards have size >= k and
+     * transforms the data. The shards must have been refined by instances
+     * which share the assignment of records to clusters with this one.
+     * Statistics are summed over all shards, while the execution time starts
+     * with the first shard.
+     * 
+     * @param shards
+     */
+    void merge(List<TassaAlgorithmImpl> shards) {
+
+        // Collect
+        this.executionStart = System.currentTimeMillis();
+        this.executionTimeOffset = 0L;
+        this.registry = new TassaClusterRegistry(manager.getNumAttributes());
+        this.index = new TassaClusterIndex(manager, registry);
+        this.inititalInformationLoss = 0d;
+        for (TassaAlgorithmImpl shard : shards) {
+            for (int i = 0; i < shard.registry.size(); i++) {
+                TassaCluster cluster = shard.registry.getCluster(i);
+                cluster.id = -1;
+                register(cluster);
+            }
+            this.inititalInformationLoss += shard.inititalInformationLoss;
+            this.executionStart = Math.min(this.executionStart, shard.executionStart);
+            this.statistics.merge(shard.statistics);
+        }
+
+        // Log
+        logger.next(TassaStep.FINALIZE);
+
+        // Merge clusters with size < k across shards
+        finish();
 
         // Log
         logger.done();
 
-        // Transform data
-        for (TassaCluster cluster : currentClustering) {
-            int[] tuple = cluster.getTransformation();
-            int[] generalization = cluster.getGeneralization();
-            for (int j = 0; j < cluster.getRecords().size(); j++) {
-                int record = cluster.getRecords().getQuick(j);
-                for (int i = 0; i < tuple.length; i++) {
-                    outputBuffer[record][i] = tuple[i];
-                    generalizationLevels[record][i] = generalization[i];
+        // Statistics
+        setStatistics();
+    }
+
+    /**
+     * Inserts new records into the clustering of a finished execution. Each
+     * record is added to the cluster with the least additional information
+     * loss. Afterwards, only the clusters which have received records are
+     * repaired: clusters with size > omega*k are split, the records of the
+     * resulting clusters are moved, if it decreases the information loss, and
+     * clusters which have become smaller than k are merged with their closest
+     * cluster. The effort therefore depends on the number of new records and
+     * the clusters they touch, not on the size of the dataset. Tuples must be
+     * encoded like the quasi-identifiers of the interface. The new records are
+     * appended to the output buffer.
+     * 
+     * @param tuples
+     * @param omega
+     * @return records whose transformation has changed, including the new
+     *         ones
+     */
+    int[] insert(int[][] tuples, double omega) {
+
+        // Check
+        if (outputBuffer == null) { throw new IllegalStateException("Records can only be inserted after an execution"); }
+        this.checkParameters(1d, omega);
+        int k = arxinterface.getK();
+
+        // Add records and grow buffers
+        int[] records = new int[tuples.length];
+        for (int i = 0; i < tuples.length; i++) {
+            records[i] = manager.addRecord(tuples[i]);
+            this.numRecords++;
+        }
+        int length = manager.getNumRecords();
+        if (length > recordToCluster.length) {
+            recordToCluster = Arrays.copyOf(recordToCluster, Math.max(length, recordToCluster.length * 2));
+        }
+        if (length > outputBuffer.length) {
+            int capacity = Math.max(length, outputBuffer.length * 2);
+            outputBuffer = Arrays.copyOf(outputBuffer, capacity);
+            generalizationLevels = Arrays.copyOf(generalizationLevels, capacity);
+        }
+
+        // Assign each record to its closest cluster
+        TassaClusterIndex.Query query = index.newQuery();
+        Set<TassaCluster> touched = new LinkedHashSet<TassaCluster>();
+        long[] counters = new long[2];
+        for (int record : records) {
+            TassaCluster cluster = getClosestClusterForRecord(query, null, record, counters).first;
+            cluster.addRecord(record);
+            assignRecordToCluster(record, cluster);
+            update(cluster);
+            touched.add(cluster);
+        }
+
+        // Split touched clusters with size > omega*k
+        List<TassaCluster> largeClusters = new ArrayList<TassaCluster>();
+        for (TassaCluster cluster : touched) {
+            if (cluster.getSize() > omega * k && cluster.getRecords().size() > 1) {
+                largeClusters.add(cluster);
+            }
+        }
+        touched.addAll(splitClusters(largeClusters, omega));
+        this.modificationManager.setModified(touched);
+
+        // Move records of touched clusters
+        for (TassaCluster cluster : new ArrayList<TassaCluster>(touched)) {
+            IntArrayList members = cluster.getRecords().copy();
+            for (int i = 0; i < members.size() && registry.size() > 1; i++) {
+                int record = members.getQuick(i);
+                TassaPair<TassaCluster, Double> target = getClosestClusterForRecord(query,
+                                                                                    getCluster(record),
+                                                                                    record,
+                                                                                    counters);
+                if (moveRecord(record, target)) {
+                    touched.add(target.first);
                 }
             }
         }
 
+        // Merge touched clusters with size < k, which result from moving
+        repair(touched, k);
+
+        // Transform touched clusters
+        statistics.incCostEvaluations(counters[0], counters[1]);
+        return transform(touched);
+    }
+
+    /**
+     * Removes records from the clustering of a finished execution. Only the
+     * clusters which contain the records are updated. Clusters which become
+     * smaller than k are merged like in the final step of an execution, but
+     * the closeness matrix only covers these clusters. The rows of the
+     * removed records in the output buffer are set to null.
+     * 
+     * @param records
+     * @return records whose transformation has changed, including the
+     *         removed ones
+     */
+    int[] retract(int[] records) {
+
+        // Check
+        if (outputBuffer == null) { throw new IllegalStateException("Records can only be retracted after an execution"); }
+        int k = arxinterface.getK();
+        if (numRecords - records.length < k) { throw new IllegalArgumentException("Less than k records would remain"); }
+        int[] sorted = records.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            int record = sorted[i];
+            if (record < 0 || record >= outputBuffer.length || outputBuffer[record] == null ||
+                (i > 0 && record == sorted[i - 1])) { throw new IllegalArgumentException("Record is not contained in the clustering: " +
+                                                                                         record); }
+        }
+
+        // Remove records from their clusters
+        Set<TassaCluster> touched = new LinkedHashSet<TassaCluster>();
+        for (int record : records) {
+
+            // Replace the representative of the record by the one of the
+            // remaining duplicates, if any
+            int representative = manager.getRepresentative(record);
+            TassaCluster cluster = getCluster(representative);
+            cluster.removeRecord(representative);
+            assignRecordToCluster(representative, null);
+            int next = manager.removeRecord(record);
+            if (next != -1) {
+                cluster.addRecord(next);
+                assignRecordToCluster(next, cluster);
+            }
+            this.numRecords--;
+
+            // Update
+            if (cluster.getRecords().isEmpty()) {
+                unregister(cluster);
+            } else {
+                update(cluster);
+                touched.add(cluster);
+            }
+            outputBuffer[record] = null;
+            generalizationLevels[record] = null;
+        }
+
+        // Merge touched clusters with size < k
+        repair(touched, k);
+
+        // Transform touched clusters
+        int[] changed = transform(touched);
+        int[] result = Arrays.copyOf(records, records.length + changed.length);
+        System.arraycopy(changed, 0, result, records.length, changed.length);
+        return result;
+    }
+
+    /**
+     * Merges the given clusters, if they have size < k. All other clusters
+     * must have size >= k. Clusters into which others have been merged are
+     * added to the given set.
+     * 
+     * @param touched
+     * @param k
+     */
+    private void repair(Set<TassaCluster> touched, int k) {
+        List<TassaCluster> smallClusters = new ArrayList<TassaCluster>();
+        for (TassaCluster cluster : touched) {
+            if (cluster.id != -1 && cluster.getSize() < k) {
+                smallClusters.add(cluster);
+            }
+        }
+        if (!smallClusters.isEmpty()) {
+            mergeClusters(smallClusters, k, touched);
+        }
+    }
+
+    /**
+     * Transforms the records of the given clusters, which have not been
+     * removed, and updates the information loss
+     * 
+     * @param clusters
+     * @return records whose transformation has changed
+     */
+    private int[] transform(Set<TassaCluster> clusters) {
+        IntArrayList changed = new IntArrayList();
+        for (TassaCluster cluster : clusters) {
+            if (cluster.id != -1) {
+                transform(cluster, changed);
+            }
+        }
+        this.finalInformationLoss = getTotalInformationLoss();
+        statistics.setFinalInformationLoss(this.getFinalInformationLoss());
+        statistics.setNumberOfClusters(this.getNumberOfClusters());
+        return Arrays.copyOf(changed.elements(), changed.size());
+    }
+
+    /**
+     * Transforms the records of the given cluster, including duplicates
+     * 
+     * @param cluster
+     * @param changed
+     *            records whose transformation changes are added to this list,
+     *            may be null
+     */
+    private void transform(TassaCluster cluster, IntArrayList changed) {
+        int[] tuple = cluster.getTransformation();
+        int[] generalization = cluster.getGeneralization();
+        for (int j = 0; j < cluster.getRecords().size(); j++) {
+            for (int record = cluster.getRecords().getQuick(j); record != -1; record = manager.getDuplicate(record)) {
+                if (changed != null && (outputBuffer[record] == null || !Arrays.equals(outputBuffer[record], tuple))) {
+                    changed.add(record);
+                }
+                if (outputBuffer[record] == null) {
+                    outputBuffer[record] = new int[tuple.length];
+                    generalizationLevels[record] = new int[tuple.length];
+                }
+                System.arraycopy(tuple, 0, outputBuffer[record], 0, tuple.length);
+                System.arraycopy(generalization, 0, generalizationLevels[record], 0, generalization.length);
+            }
+        }
+    }
+
+    /**
+     * Creates an initial clustering and moves records and splits clusters
+     * until the information loss converges. Clusters may still be smaller
+     * than k afterwards.
+     * 
+     * @param alpha
+     * @param omega
+     * @param input
+     */
+    void refine(double alpha, double omega, Set<TassaCluster> input) {
+
+        // Check
+        this.checkParameters(alpha, omega);
+
+        // Initial step: create random clustering
+        long time = System.currentTimeMillis();
+        Set<TassaCluster> clustering = this.getInitialPartitioning(alpha, omega, input);
+        this.registry = new TassaClusterRegistry(manager.getNumAttributes());
+        this.index = new TassaClusterIndex(manager, registry);
+        for (TassaCluster cluster : clustering) {
+            cluster.id = -1;
+            register(cluster);
+        }
+        this.inititalInformationLoss = getTotalInformationLoss();
+        this.executionStart = time;
+        this.executionTimeOffset = 0L;
+        if (this.resumedCheckpoint != null) {
+            this.inititalInformationLoss = resumedCheckpoint.getInitialInformationLoss();
+            this.statistics = resumedCheckpoint.getStatistics();
+            this.executionTimeOffset = statistics.getExecutionTime();
+            this.resumedCheckpoint = null;
+        }
+        this.modificationManager.setModified(clustering);
+
+        // Log
+        logger.next(TassaStep.INITIALIZE);
+
+        // Prepare queries and threads
+        this.queries = new TassaClusterIndex.Query[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            this.queries[i] = this.index.newQuery();
+        }
+        this.pool = numThreads > 1 ? new ForkJoinPool(numThreads) : null;
+        this.checkpointWriter = checkpointFile != null ? new TassaCheckpoint.Writer(checkpointFile) : null;
+        this.checkpointFailure = null;
+        checkpoint(statistics.getIterations(), true);
+
+        // Intermediate steps: move and split, if there are at least two
+        // clusters to move records between
+        try {
+            boolean modified = true;
+            double snapshotLoss = Double.MAX_VALUE;
+            while (modified && registry.size() > 1 && !isDeadlineExceeded()) {
+                modified = false;
+
+                // Log
+                statistics.incIterations();
+                double previousLoss = getTotalInformationLoss();
+                logger.next(TassaStep.MOVE_RECORDS);
+                modified |= moveRecords();
+
+                // Log
+                logger.next(TassaStep.SPLIT_CLUSTERS);
+                modified |= splitClusters(omega);
+                double newLoss = getTotalInformationLoss();
+
+                // Break
+                if (!isSignficantlySmaller(previousLoss, newLoss, this.numRecords)) {
+                    break;
+                }
+
+                // Publish. Merging small clusters never decreases the loss,
+                // so a snapshot cannot improve if the current loss does not.
+                if (snapshotListener != null && newLoss < snapshotLoss && !isDeadlineExceeded()) {
+                    TassaAlgorithmImpl snapshot = getSnapshot();
+                    if (snapshot.finalInformationLoss < snapshotLoss) {
+                        snapshotLoss = snapshot.finalInformationLoss;
+                        snapshotListener.notify(snapshot);
+                    }
+                }
+
+                // Prepare
+                this.modificationManager.prepareNextIteration();
+                checkpoint(statistics.getIterations(), false);
+            }
+        } finally {
+            if (this.pool != null) {
+                this.pool.shutdown();
+                this.pool = null;
+            }
+            if (this.checkpointWriter != null) {
+                this.checkpointWriter.close();
+                this.checkpointFailure = this.checkpointWriter.getFailure();
+                this.checkpointWriter = null;
+                if (this.checkpointFailure != null) {
+                    logger.warn("Cannot write checkpoint to " + checkpointFile + ": " + checkpointFailure.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the statistics after the data has been transformed
+     */
+    private void setStatistics() {
+        statistics.setSeed(this.seed);
+        statistics.setDeadlineExceeded(isDeadlineExceeded());
         statistics.setFinalInformationLoss(this.getFinalInformationLoss());
         statistics.setInitialInformationLoss(this.getInititalInformationLoss());
         statistics.setNumberOfClusters(this.getNumberOfClusters());
-        statistics.setExecutionTime(System.currentTimeMillis() - time);
+        statistics.setExecutionTime(executionTimeOffset + System.currentTimeMillis() - executionStart);
+    }
+
+    /**
+     * Submits a checkpoint of the current clustering to the background
+     * writer, if checkpointing is enabled and the interval has passed since
+     * the last one. The clustering is serialized on the calling thread, which
+     * only requires a copy of the assignment of records to clusters.
+     * 
+     * @param iteration
+     *            number of completed iterations
+     * @param force
+     *            ignore the interval
+     */
+    private void checkpoint(int iteration, boolean force) {
+        if (checkpointWriter == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (force || now - checkpointTime >= checkpointInterval) {
+            statistics.setExecutionTime(executionTimeOffset + now - executionStart);
+            checkpointWriter.submit(TassaCheckpoint.toByteArray(numRecords,
+                                                                iteration,
+                                                                inititalInformationLoss,
+                                                                statistics,
+                                                                registry));
+            checkpointTime = now;
+        }
+    }
+
+    /**
+     * Ensures that all clusters have size >= k and transforms the data
+     */
+    private void finish() {
+
+        // Merge
+        ensureClustersHaveSize(this.arxinterface.getK());
+        this.finalInformationLoss = getTotalInformationLoss();
+
+        // Transform data, rows of removed records remain null
+        if (outputBuffer == null) {
+            outputBuffer = new int[manager.getNumRecords()][];
+            generalizationLevels = new int[outputBuffer.length][];
+        }
+        for (int c = 0; c < registry.size(); c++) {
+            transform(registry.getCluster(c), null);
+        }
+    }
+
+    /**
+     * Returns a k-anonymous snapshot of the current clustering, which is left
+     * unchanged
+     * 
+     * @return
+     */
+    private TassaAlgorithmImpl getSnapshot() {
+
+        // Copy
+        TassaAlgorithmImpl snapshot = new TassaAlgorithmImpl(arxinterface);
+        snapshot.setMatrixMemoryLimit(this.matrixMemoryLimit);
+        snapshot.setMerging(this.merging);
+        snapshot.registry = new TassaClusterRegistry(manager.getNumAttributes());
+        snapshot.index = new TassaClusterIndex(manager, snapshot.registry);
+        for (int i = 0; i < registry.size(); i++) {
+            TassaCluster cluster = new TassaCluster(manager, registry.getCluster(i).getRecords().copy());
+            snapshot.assignRecordsToCluster(cluster.getRecords(), cluster);
+            snapshot.register(cluster);
+        }
+
+        // Finish
+        snapshot.inititalInformationLoss = this.inititalInformationLoss;
+        snapshot.finish();
+        return snapshot;
+    }
+
+    /**
+     * Removes the unused capacity of the buffers, which remains after
+     * inserting records
+     */
+    private void trimBuffers() {
+        int length = manager.getNumRecords();
+        if (outputBuffer != null && outputBuffer.length > length) {
+            outputBuffer = Arrays.copyOf(outputBuffer, length);
+            generalizationLevels = Arrays.copyOf(generalizationLevels, length);
+        }
+    }
+
+    /**
+     * Returns whether the deadline has passed
+     * 
+     * @return
+     */
+    private boolean isDeadlineExceeded() {
+        return deadline != Long.MAX_VALUE && System.currentTimeMillis() >= deadline;
     }
 
     /**
@@ -543,7 +1604,14 @@ public class TassaAlgorithmImpl {
      * @return
      */
        Set<TassaCluster> getClustering() {
-        return currentClustering;
+        if (registry == null) {
+            return null;
+        }
+        Set<TassaCluster> result = new LinkedHashSet<TassaCluster>();
+        for (int i = 0; i < registry.size(); i++) {
+            result.add(registry.getCluster(i));
+        }
+        return result;
     }
 
     /**
@@ -555,6 +1623,16 @@ public class TassaAlgorithmImpl {
         return finalInformationLoss / this.numRecords;
     }
 
+    /**
+     * Returns the first failure when writing a checkpoint in the last
+     * execution, null if checkpoints have been written or are disabled
+     * 
+     * @return
+     */
+    IOException getCheckpointFailure() {
+        return checkpointFailure;
+    }
+
     /**
      * Return TODO
      * 
@@ -570,8 +1648,8 @@ public class TassaAlgorithmImpl {
      * @return
      */
         int getNumberOfClusters() {
-        if (currentClustering != null) {
-            return currentClustering.size();
+        if (registry != null) {
+            return registry.size();
         } else {
             return 0;
         }
@@ -592,13 +1670,27 @@ public class TassaAlgorithmImpl {
      * @return
      */
        int[][] getOutputBuffer() {
+        trimBuffers();
         return outputBuffer;
     }
 
+    /**
+     * Returns the transformation of the given record, null if it has been
+     * retracted
+     * 
+     * @param record
+     * @return
+     */
+    int[] getOutputBuffer(int record) {
+        if (record < 0 || record >= manager.getNumRecords()) { throw new IllegalArgumentException("Unknown record: " + record); }
+        return outputBuffer[record];
+    }
+
     /**
      * @return Generalization levels for each record.
      */
        int[][] getGeneralizationLevels() {
+        trimBuffers();
         return generalizationLevels;
     }
 
@@ -616,17 +1708,113 @@ public class TassaAlgorithmImpl {
      */
            double getTotalInformationLoss() {
 
-        if (this.currentClustering == null) {
+        if (this.registry == null) {
             return 0;
         } else {
-            double result = 0.0;
-            for (TassaCluster cluster : this.currentClustering) {
-                result += cluster.getInformationLoss();
-            }
-            return result;
+            return this.registry.getTotalInformationLoss();
         }
     }
 
+    /**
+     * Resumes the next execution from the given checkpoint. Statistics,
+     * iteration counter and initial information loss are continued, while the
+     * clustering of the checkpoint must be passed as the input of execute().
+     * 
+     * @param checkpoint
+     */
+    void resume(TassaCheckpoint checkpoint) {
+        if (checkpoint.getNumRecords() != this.numRecords) {
+            throw new IllegalArgumentException("Checkpoint has been created for " + checkpoint.getNumRecords() +
+                                               " records instead of " + this.numRecords);
+        }
+        this.resumedCheckpoint = checkpoint;
+    }
+
+    /**
+     * Enables checkpoints, which are written to the given file on a
+     * background thread. A checkpoint is created after initialization and
+     * then whenever the given interval has passed, which is checked every 256
+     * records and after each iteration.
+     * 
+     * @param file
+     *            set to null to disable checkpoints
+     * @param interval
+     *            minimal time between two checkpoints, in milliseconds
+     */
+    void setCheckpoint(File file, long interval) {
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+    }
+
+    /**
+     * Sets the number of bytes above which the closeness matrix is stored in a
+     * memory-mapped file
+     * 
+     * @param matrixMemoryLimit
+     */
+    void setMatrixMemoryLimit(long matrixMemoryLimit) {
+        this.matrixMemoryLimit = matrixMemoryLimit;
+    }
+
+    /**
+     * Sets the point in time, in milliseconds, at which moving records and
+     * splitting clusters stops. The current clustering is then made
+     * k-anonymous and returned.
+     * 
+     * @param deadline
+     */
+    void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets a listener for k-anonymous snapshots, which are published after
+     * each iteration in which their information loss decreases
+     * 
+     * @param listener
+     */
+    void setSnapshotListener(TassaSnapshotListener listener) {
+        this.snapshotListener = listener;
+    }
+
+    /**
+     * Sets the seed of the random initial partitioning
+     * 
+     * @param seed
+     */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the strategy for merging clusters with size < k
+     * 
+     * @param merging
+     */
+    void setMerging(TassaMerging merging) {
+        this.merging = merging;
+    }
+
+    /**
+     * Sets the strategy for creating the initial partitioning
+     * 
+     * @param partitioning
+     */
+    void setPartitioning(TassaPartitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Sets the number of threads used for moving records
+     * 
+     * @param numThreads
+     */
+    void setNumThreads(int numThreads) {
+        if (numThreads < 1) { throw new IllegalArgumentException("Number of threads must be at least one: " +
+                                                                 numThreads); }
+        this.numThreads = numThreads;
+    }
+
     /**
      * Enable/disable logging
      * 
@@ -0,0 +1,139 @@
+package org.deidentifier.arx.clustering;
+
+import cern.colt.list.IntArrayList;
+
+/**
+ * Cost model in which each record is assigned a cost per attribute, which only
+ * depends on the generalized value of the attribute. The costs of a cluster
+ * are the sum over all attributes, divided by a constant, times the number of
+ * records. As costs do not decrease when values are generalized further, they
+ * meet the lower bound required by {@link TassaCostModel}. Costs are looked up
+ * in a table, which is materialized when the model is created.
+ */
+public abstract class TassaAttributeCostModel implements TassaCostModel {
+
+    /** Manager */
+    private final GeneralizationManager manager;
+    /** Number of attributes */
+    private final int                   numAttributes;
+    /** Number of distinct values, including generalized ones, per attribute */
+    private final int[]                 numValues;
+    /** Costs per attribute, indexed by level * number of values + value */
+    private final double[][]            costs;
+    /** Divisor of the sum over all attributes */
+    private final double                divisor;
+
+    /**
+     * Creates a new instance
+     * @param manager
+     * @param costs per attribute, indexed by level * number of values + value
+     * @param divisor
+     */
+    protected TassaAttributeCostModel(GeneralizationManager manager, double[][] costs, double divisor) {
+        this.manager = manager;
+        this.numAttributes = manager.getNumAttributes();
+        this.numValues = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            this.numValues[i] = manager.getNumValues(i);
+        }
+        this.costs = costs;
+        this.divisor = divisor;
+    }
+
+    @Override
+    public double getCost(IntArrayList records, int size, TassaHistogram histogram, int[] generalization, double[] cache) {
+
+        double cost = 0d;
+        int record = records.getQuick(0);
+
+        for (int i = 0; i < numAttributes; i++) {
+            int level = histogram.getGeneralizationLevel(i);
+            if (level != generalization[i] || cache[i] == -1d) {
+                generalization[i] = level;
+                double share = getCost(i, level, manager.getPath(record, i)[level]);
+                cost += share;
+                cache[i] = share;
+            } else {
+                cost += cache[i];
+            }
+        }
+
+        cost /= divisor;
+        cost *= size;
+        return cost;
+    }
+
+    @Override
+    public double getCostWhenAddingCluster(IntArrayList records1,
+                                           int size1,
+                                           int[] generalization1,
+                                           IntArrayList records2,
+                                           int size2,
+                                           int[] generalization2) {
+
+        double cost = 0d;
+        int record = records1.getQuick(0);
+
+        for (int i = 0; i < numAttributes; i++) {
+            int level = manager.getGeneralizationLevelWhenAddingCluster(i,
+                                                                        records1,
+                                                                        records2,
+                                                                        Math.max(generalization1[i],
+                                                                                 generalization2[i]));
+            cost += getCost(i, level, manager.getPath(record, i)[level]);
+        }
+
+        cost /= divisor;
+        cost *= (size1 + size2);
+        return cost;
+    }
+
+    @Override
+    public double getCostWhenAddingRecord(IntArrayList records, int size, int[] generalization, int record, double[] cache) {
+
+        double cost = 0d;
+        int representative = records.getQuick(0);
+
+        for (int i = 0; i < numAttributes; i++) {
+            int value = manager.getValue(i, record);
+            int level = Math.max(generalization[i],
+                                 manager.getJoinLevel(i, manager.getValue(i, representative), value));
+            if (level != generalization[i]) {
+                cost += getCost(i, level, manager.getPath(record, i)[level]);
+            } else {
+                cost += cache[i];
+            }
+        }
+
+        cost /= divisor;
+        cost *= (size + manager.getWeight(record));
+        return cost;
+    }
+
+    @Override
+    public double getCostWhenRemovingRecord(IntArrayList records, int size, TassaHistogram histogram, int record) {
+
+        double cost = 0d;
+        int remaining = records.getQuick(0) != record ? records.getQuick(0) : records.getQuick(1);
+
+        for (int i = 0; i < numAttributes; i++) {
+            int level = histogram.getGeneralizationLevelWhenRemoving(i, record);
+            cost += getCost(i, level, manager.getPath(remaining, i)[level]);
+        }
+
+        cost /= divisor;
+        cost *= (size - manager.getWeight(record));
+        return cost;
+    }
+
+    /**
+     * Returns the costs of a generalized value for a single record
+     * @param dimension
+     * @param level
+     * @param value
+     * @return
+     */
+    private double getCost(int dimension, int level, int value) {
+        return costs[dimension][level * numValues[dimension] + value];
+    }
+}
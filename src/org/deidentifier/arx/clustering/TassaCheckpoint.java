@@ -0,0 +1,285 @@
+package org.deidentifier.arx.clustering;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import cern.colt.list.IntArrayList;
+
+/**
+ * Checkpoint of an execution of Tassa, consisting of the assignment of records
+ * to clusters, the number of completed iterations and the statistics. The
+ * binary format consists of a header, the statistics and, for each cluster,
+ * the number of its records followed by their identifiers. Only
+ * representatives of distinct tuples are stored, as their duplicates are
+ * always assigned to the same cluster.
+ */
+public class TassaCheckpoint {
+
+    /**
+     * Writes checkpoints to a file on a background thread. If a checkpoint is
+     * submitted while another one is being written, only the most recent one
+     * of the waiting checkpoints is written afterwards. Files are replaced
+     * atomically, such that a crash never leaves a partially written
+     * checkpoint behind. A failed write does not stop the execution, but is
+     * recorded for the caller.
+     */
+    static class Writer {
+
+        /** File */
+        private final File               file;
+        /** Executor with a single thread and a queue holding at most one checkpoint */
+        private final ThreadPoolExecutor executor;
+        /** First failure when writing a checkpoint, null if there is none */
+        private volatile IOException     failure;
+
+        /**
+         * Creates a new instance
+         * 
+         * @param file
+         */
+        Writer(File file) {
+            this.file = file;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                                   new ArrayBlockingQueue<Runnable>(1),
+                                                   new ThreadFactory() {
+                                                       @Override
+                                                       public Thread newThread(Runnable runnable) {
+                                                           Thread thread = new Thread(runnable, "tassa-checkpoint");
+                                                           thread.setDaemon(true);
+                                                           return thread;
+                                                       }
+                                                   },
+                                                   new ThreadPoolExecutor.DiscardOldestPolicy());
+        }
+
+        /**
+         * Waits until the last checkpoint has been written and stops the thread
+         */
+        void close() {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Returns the first failure when writing a checkpoint, null if all
+         * checkpoints have been written. Must be called after close().
+         * 
+         * @return
+         */
+        IOException getFailure() {
+            return failure;
+        }
+
+        /**
+         * Submits a serialized checkpoint for writing
+         * 
+         * @param data
+         */
+        void submit(final byte[] data) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    File temp = new File(file.getPath() + ".tmp");
+                    try {
+                        FileOutputStream out = new FileOutputStream(temp);
+                        try {
+                            out.write(data);
+                            out.getFD().sync();
+                        } finally {
+                            out.close();
+                        }
+                        Files.move(temp.toPath(), file.toPath(),
+                                   StandardCopyOption.REPLACE_EXISTING,
+                                   StandardCopyOption.ATOMIC_MOVE);
+                    } catch (IOException e) {
+                        // A failed checkpoint does not affect the execution
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /** Identifies checkpoint files */
+    private static final int      MAGIC   = 0x54415353;
+    /** Version of the format */
+    private static final int      VERSION = 1;
+
+    /** Number of records */
+    private final int             numRecords;
+    /** Number of completed iterations */
+    private final int             iteration;
+    /** Information loss of the initial clustering, not normalized */
+    private final double          initialInformationLoss;
+    /** Statistics */
+    private final TassaStatistics statistics;
+    /** Records of the clusters */
+    private final int[][]         clusters;
+
+    /**
+     * Creates a new instance
+     * 
+     * @param numRecords
+     * @param iteration
+     * @param initialInformationLoss
+     * @param statistics
+     * @param clusters
+     */
+    private TassaCheckpoint(int numRecords,
+                            int iteration,
+                            double initialInformationLoss,
+                            TassaStatistics statistics,
+                            int[][] clusters) {
+        this.numRecords = numRecords;
+        this.iteration = iteration;
+        this.initialInformationLoss = initialInformationLoss;
+        this.statistics = statistics;
+        this.clusters = clusters;
+    }
+
+    /**
+     * Reads a checkpoint from the given file
+     * 
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static TassaCheckpoint read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) { throw new IOException("Not a checkpoint: " + file); }
+            int version = in.readInt();
+            if (version != VERSION) { throw new IOException("Unsupported version of checkpoint: " + version); }
+            int numRecords = in.readInt();
+            int iteration = in.readInt();
+            double initialInformationLoss = in.readDouble();
+            TassaStatistics statistics = TassaStatistics.read(in);
+            int[][] clusters = new int[in.readInt()][];
+            for (int i = 0; i < clusters.length; i++) {
+                clusters[i] = new int[in.readInt()];
+                for (int j = 0; j < clusters[i].length; j++) {
+                    clusters[i][j] = in.readInt();
+                }
+            }
+            return new TassaCheckpoint(numRecords, iteration, initialInformationLoss, statistics, clusters);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Serializes the current state of an execution
+     * 
+     * @param numRecords
+     * @param iteration
+     * @param initialInformationLoss
+     * @param statistics
+     * @param registry
+     * @return
+     */
+    static byte[] toByteArray(int numRecords,
+                              int iteration,
+                              double initialInformationLoss,
+                              TassaStatistics statistics,
+                              TassaClusterRegistry registry) {
+
+        int length = 0;
+        for (int i = 0; i < registry.size(); i++) {
+            length += registry.getCluster(i).getRecords().size() + 1;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length * 4 + 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numRecords);
+            out.writeInt(iteration);
+            out.writeDouble(initialInformationLoss);
+            statistics.write(out);
+            out.writeInt(registry.size());
+            for (int i = 0; i < registry.size(); i++) {
+                IntArrayList records = registry.getCluster(i).getRecords();
+                out.writeInt(records.size());
+                for (int j = 0; j < records.size(); j++) {
+                    out.writeInt(records.getQuick(j));
+                }
+            }
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the clustering, which can be passed as the input of an
+     * execution
+     * 
+     * @param manager
+     * @return
+     */
+    public Set<TassaCluster> getClustering(GeneralizationManager manager) {
+        Set<TassaCluster> result = new LinkedHashSet<TassaCluster>();
+        for (int[] cluster : clusters) {
+            result.add(new TassaCluster(manager, new IntArrayList(cluster.clone())));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the information loss of the initial clustering of the
+     * execution, which is not normalized
+     * 
+     * @return
+     */
+    double getInitialInformationLoss() {
+        return initialInformationLoss;
+    }
+
+    /**
+     * Returns the number of records of the dataset
+     * 
+     * @return
+     */
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Returns the number of completed iterations
+     * 
+     * @return
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * Returns the statistics at the time of the checkpoint
+     * 
+     * @return
+     */
+    public TassaStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -1,46 +1,208 @@
 package org.deidentifier.arx.clustering;
 
-import java.util.Arrays;
-import java.util.Set;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-public class TassaClosenessMatrix {
+/**
+ * Matrix of the increases in information loss when merging pairs of clusters.
+ * Only the upper triangle is stored, packed row by row into a
+ * {@link TassaClosenessStorage}. The closest pair is found with a heap over
+ * the minima of all rows, which is ordered by (minimum, row), so that ties are
+ * resolved like in a row-major scan of the matrix. When the minimum of a row
+ * is removed or increased, the row is only marked as stale. Its old minimum
+ * remains in the heap as a lower bound and the row is scanned again only when
+ * it reaches the top of the heap. If a pool is given, distances are computed
+ * concurrently in blocks of rows, while the heap is maintained sequentially.
+ */
+public class TassaClosenessMatrix implements TassaMergeQueue {
+
+    /**
+     * Computes the distances in a range of rows, which is split into two
+     * ranges with about the same number of cells until it is small enough
+     */
+    private class RowTask extends RecursiveAction {
+
+        /** SVUID */
+        private static final long serialVersionUID = -3470339553178233373L;
+        /** First row, inclusive */
+        private final int         from;
+        /** Last row, exclusive */
+        private final int         to;
+
+        /**
+         * Creates a new instance
+         * @param from
+         * @param to
+         */
+        private RowTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && rowOffset[to] - rowOffset[from] > BLOCK_SIZE) {
+                int middle = getMiddleRow(from, to);
+                invokeAll(new RowTask(from, middle), new RowTask(middle, to));
+            } else {
+                for (int x = from; x < to; x++) {
+                    initializeRow(x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the distances of a range of clusters to a merged cluster
+     */
+    private class MergeTask extends RecursiveAction {
+
+        /** SVUID */
+        private static final long serialVersionUID = 2398914806421815637L;
+        /** Row of the merged cluster */
+        private final int         row;
+        /** First row, inclusive */
+        private final int         from;
+        /** Last row, exclusive */
+        private final int         to;
+        /** Distances, by row */
+        private final double[]    distances;
+
+        /**
+         * Creates a new instance
+         * @param row
+         * @param from
+         * @param to
+         * @param distances
+         */
+        private MergeTask(int row, int from, int to, double[] distances) {
+            this.row = row;
+            this.from = from;
+            this.to = to;
+            this.distances = distances;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BLOCK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MergeTask(row, from, middle, distances), new MergeTask(row, middle, to, distances));
+            } else {
+                for (int x = from; x < to; x++) {
+                    distances[x] = getMergedDistance(x, row);
+                }
+            }
+        }
+    }
+
+    /** Default limit in bytes above which the matrix is stored in a memory-mapped file */
+    public static final long      DEFAULT_MEMORY_LIMIT = 1L << 30;
+    /** Number of cells below which a block of rows is processed by a single task */
+    private static final int      BLOCK_SIZE           = 4096;
 
     /** Matrix with distances. A value of Double.MAX_VALUE marks an empty slot **/
-    private double[][]     matrix;
-    /** Cluster with id x is at clusters[x] */
-    private TassaCluster[] clusters;
+    private TassaClosenessStorage matrix;
+    /** Index of the first cell of each row */
+    private long[]                rowOffset;
+    /** Cluster in row x is at clusters[x] */
+    private TassaCluster[]        clusters;
+    /** Row of the cluster with id x is at rows[x] */
+    private int[]                 rows;
+    /** Minimum per row. A lower bound, if the row is stale */
+    private double[]              rowMinimum;
+    /** Column of the minimum per row */
+    private int[]                 rowColumn;
+    /** Whether the minimum of a row must be recomputed */
+    private boolean[]             rowStale;
+    /** Heap of rows */
+    private int[]                 heap;
+    /** Positions of the rows in the heap */
+    private int[]                 heapPosition;
+    /** Pool for computing distances, may be null */
+    private final ForkJoinPool    pool;
     
     /**
      * Creates a new instance
      * @param clustering
      */
-    public TassaClosenessMatrix(Set<TassaCluster> clustering) {
+    public TassaClosenessMatrix(Collection<TassaCluster> clustering) {
+        this(clustering, DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Creates a new instance
+     * @param clustering
+     * @param limit number of bytes above which the matrix is stored in a memory-mapped file
+     */
+    public TassaClosenessMatrix(Collection<TassaCluster> clustering, long limit) {
+        this(clustering, limit, null);
+    }
+
+    /**
+     * Creates a new instance
+     * @param clustering
+     * @param limit number of bytes above which the matrix is stored in a memory-mapped file
+     * @param pool pool for computing distances concurrently, may be null
+     */
+    public TassaClosenessMatrix(Collection<TassaCluster> clustering, long limit, ForkJoinPool pool) {
     
-        // Assign ids
+        // Assign rows
+        this.pool = pool;
         int count = 0;
-        for (TassaCluster cluster : clustering) {
-            cluster.id = count++;
-        }
+        int maxId = -1;
         clusters = new TassaCluster[clustering.size()];
         for (TassaCluster cluster : clustering) {
-            clusters[cluster.id] = cluster;
+            clusters[count++] = cluster;
+            maxId = Math.max(maxId, cluster.id);
+        }
+        rows = new int[maxId + 1];
+        for (int x = 0; x < count; x++) {
+            rows[clusters[x].id] = x;
         }
         
         // Create matrix
-        this.matrix = new double[count][];
-        for (int i = 0; i < matrix.length; i++) {
-            matrix[i] = new double[count];
-            Arrays.fill(matrix[i], Double.MAX_VALUE);
+        this.rowOffset = new long[count + 1];
+        for (int x = 0; x < count; x++) {
+            rowOffset[x + 1] = rowOffset[x] + (count - x - 1);
         }
+        this.matrix = TassaClosenessStorage.create(rowOffset[count], limit);
         
-        // Initialize
-        for (int x=0; x < clusters.length; x++) {
-            for (int y=x+1; y<clusters.length; y++) {
-                double delta = clusters[x].getInformationLossWhenAdding(clusters[y]) - 
-                               (clusters[x].getInformationLoss() + clusters[y].getInformationLoss());
-                matrix[x][y] = delta;
+        // Initialize, the caller cannot release the storage if this fails
+        try {
+            if (pool != null && rowOffset[count] > BLOCK_SIZE) {
+                pool.invoke(new RowTask(0, count));
+            } else {
+                for (int x = 0; x < count; x++) {
+                    initializeRow(x);
+                }
             }
+        } catch (RuntimeException | Error e) {
+            matrix.close();
+            throw e;
         }
+        
+        // Build heap
+        this.rowMinimum = new double[count];
+        this.rowColumn = new int[count];
+        this.rowStale = new boolean[count];
+        this.heap = new int[count];
+        this.heapPosition = new int[count];
+        for (int x = 0; x < count; x++) {
+            updateRow(x);
+            heap[x] = x;
+            heapPosition[x] = x;
+        }
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Releases the storage of the matrix
+     */
+    public void close() {
+        matrix.close();
     }
 
     /**
@@ -50,25 +212,22 @@ public class TassaClosenessMatrix {
      */
     public TassaPair<TassaCluster, TassaCluster> getClosestTwoClusters() {
         
-        double deltaMin = Double.MAX_VALUE;
-        TassaCluster cluster1 = null;
-        TassaCluster cluster2 = null;
+        if (heap.length == 0) {
+            return null;
+        }
         
-        for (int x=0; x < clusters.length; x++) {
-            for (int y=x+1; y<clusters.length; y++) {
-                double delta = matrix[x][y];
-                if (delta < deltaMin) {
-                    cluster1 = clusters[x];
-                    cluster2 = clusters[y];
-                    deltaMin = delta;
-                }
-            }
+        // Rescan stale rows until the top of the heap is up to date
+        int x = heap[0];
+        while (rowStale[x]) {
+            updateRow(x);
+            siftDown(0);
+            x = heap[0];
         }
         
-        if (deltaMin == Double.MAX_VALUE) {
+        if (rowMinimum[x] == Double.MAX_VALUE) {
             return null;
         } else {
-            return new TassaPair<TassaCluster, TassaCluster>(cluster1, cluster2);
+            return new TassaPair<TassaCluster, TassaCluster>(clusters[x], clusters[rowColumn[x]]);
         }
     }
     
@@ -80,19 +239,24 @@ public class TassaClosenessMatrix {
     public void setMerged(TassaCluster first, TassaCluster second) {
         
         // Remove second cluster
-        for (int x = 0; x < clusters.length; x++) {
-            matrix[x][second.id] = Double.MAX_VALUE;
-            matrix[second.id][x] = Double.MAX_VALUE;
-        }
+        setRemoved(second);
         
         // Update all relationships for first cluster
-        for (int x=0; x < clusters.length; x++) {
-            int xIndex = x < first.id ? x : first.id;
-            int yIndex = first.id > x ? first.id : x;
-            if (x != first.id && matrix[xIndex][yIndex] != Double.MAX_VALUE) {
-                double delta = clusters[x].getInformationLossWhenAdding(clusters[first.id]) - 
-                               (clusters[x].getInformationLoss() + clusters[first.id].getInformationLoss());
-                matrix[xIndex][yIndex] = delta;
+        int row = rows[first.id];
+        if (pool != null && clusters.length > BLOCK_SIZE) {
+            double[] distances = new double[clusters.length];
+            pool.invoke(new MergeTask(row, 0, clusters.length, distances));
+            for (int x = 0; x < clusters.length; x++) {
+                if (distances[x] != Double.MAX_VALUE) {
+                    setDistance(Math.min(x, row), Math.max(x, row), distances[x]);
+                }
+            }
+        } else {
+            for (int x = 0; x < clusters.length; x++) {
+                double distance = getMergedDistance(x, row);
+                if (distance != Double.MAX_VALUE) {
+                    setDistance(Math.min(x, row), Math.max(x, row), distance);
+                }
             }
         }
     }
@@ -104,9 +268,173 @@ public class TassaClosenessMatrix {
     public void setRemoved(TassaCluster cluster) {
 
         // Remove cluster
-        for (int x = 0; x < clusters.length; x++) {
-            matrix[x][cluster.id] = Double.MAX_VALUE;
-            matrix[cluster.id][x] = Double.MAX_VALUE;
+        int row = rows[cluster.id];
+        for (int x = 0; x < row; x++) {
+            setDistance(x, row, Double.MAX_VALUE);
+        }
+        matrix.fill(rowOffset[row], rowOffset[row + 1], Double.MAX_VALUE);
+        rowMinimum[row] = Double.MAX_VALUE;
+        rowColumn[row] = -1;
+        rowStale[row] = false;
+        siftDown(heapPosition[row]);
+    }
+
+    /**
+     * Returns the distance between the clusters in rows x and y
+     * @param x
+     * @param y
+     * @return
+     */
+    private double getDistance(int x, int y) {
+        return clusters[x].getInformationLossWhenAdding(clusters[y]) -
+               (clusters[x].getInformationLoss() + clusters[y].getInformationLoss());
+    }
+
+    /**
+     * Returns the new distance between the cluster in row x and the merged
+     * cluster in the given row, Double.MAX_VALUE if the cell is empty
+     * @param x
+     * @param row
+     * @return
+     */
+    private double getMergedDistance(int x, int row) {
+        if (x == row || matrix.get(getIndex(Math.min(x, row), Math.max(x, row))) == Double.MAX_VALUE) {
+            return Double.MAX_VALUE;
+        }
+        return getDistance(x, row);
+    }
+
+    /**
+     * Returns a row which splits the given range of rows into two ranges with
+     * about the same number of cells
+     * @param from
+     * @param to
+     * @return
+     */
+    private int getMiddleRow(int from, int to) {
+        long middle = (rowOffset[from] + rowOffset[to]) >>> 1;
+        int low = from + 1;
+        int high = to - 1;
+        while (low < high) {
+            int row = (low + high) >>> 1;
+            if (rowOffset[row] < middle) {
+                low = row + 1;
+            } else {
+                high = row;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the cell for the clusters in rows x and y, where x < y
+     * @param x
+     * @param y
+     * @return
+     */
+    private long getIndex(int x, int y) {
+        return rowOffset[x] + (y - x - 1);
+    }
+
+    /**
+     * Computes the distances in row x
+     * @param x
+     */
+    private void initializeRow(int x) {
+        for (int y = x + 1; y < clusters.length; y++) {
+            matrix.set(getIndex(x, y), getDistance(x, y));
+        }
+    }
+
+    /**
+     * Returns whether row x must be ordered before row y in the heap
+     * @param x
+     * @param y
+     * @return
+     */
+    private boolean isBefore(int x, int y) {
+        return rowMinimum[x] < rowMinimum[y] || (rowMinimum[x] == rowMinimum[y] && x < y);
+    }
+
+    /**
+     * Sets the distance between the clusters in rows x and y, where x < y
+     * @param x
+     * @param y
+     * @param distance
+     */
+    private void setDistance(int x, int y, double distance) {
+        matrix.set(getIndex(x, y), distance);
+        if (distance < rowMinimum[x] || (distance == rowMinimum[x] && y < rowColumn[x] && !rowStale[x])) {
+            rowMinimum[x] = distance;
+            rowColumn[x] = y;
+            rowStale[x] = false;
+            siftUp(heapPosition[x]);
+        } else if (rowColumn[x] == y) {
+            rowStale[x] = true;
+        }
+    }
+
+    /**
+     * Moves the element at the given position down the heap
+     * @param position
+     */
+    private void siftDown(int position) {
+        int row = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heap.length) {
+                break;
+            }
+            if (child + 1 < heap.length && isBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isBefore(heap[child], row)) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = row;
+        heapPosition[row] = position;
+    }
+
+    /**
+     * Moves the element at the given position up the heap
+     * @param position
+     */
+    private void siftUp(int position) {
+        int row = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBefore(row, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPosition[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = row;
+        heapPosition[row] = position;
+    }
+
+    /**
+     * Scans the given row for its minimum
+     * @param x
+     */
+    private void updateRow(int x) {
+        double minimum = Double.MAX_VALUE;
+        int column = -1;
+        long index = rowOffset[x];
+        for (int y = x + 1; y < clusters.length; y++, index++) {
+            double distance = matrix.get(index);
+            if (distance < minimum) {
+                minimum = distance;
+                column = y;
+            }
         }
+        rowMinimum[x] = minimum;
+        rowColumn[x] = column;
+        rowStale[x] = false;
     }
 }
@@ -0,0 +1,170 @@
+package org.deidentifier.arx.clustering;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * Storage for the cells of a closeness matrix, addressed with long indices.
+ * Small matrices are stored in a single array on the heap, large matrices in a
+ * memory-mapped temporary file.
+ */
+public abstract class TassaClosenessStorage {
+
+    /**
+     * Storage in a single array on the heap
+     */
+    private static class HeapStorage extends TassaClosenessStorage {
+
+        /** Cells */
+        private final double[] cells;
+
+        /**
+         * Creates a new instance
+         * @param size
+         */
+        private HeapStorage(int size) {
+            this.cells = new double[size];
+        }
+
+        @Override
+        public void close() {
+            // Empty by design
+        }
+
+        @Override
+        public void fill(long from, long to, double value) {
+            Arrays.fill(cells, (int) from, (int) to, value);
+        }
+
+        @Override
+        public double get(long index) {
+            return cells[(int) index];
+        }
+
+        @Override
+        public void set(long index, double value) {
+            cells[(int) index] = value;
+        }
+    }
+
+    /**
+     * Storage in a memory-mapped temporary file, which is split into chunks
+     */
+    private static class MappedStorage extends TassaClosenessStorage {
+
+        /** Number of bits for addressing cells within a chunk */
+        private static final int       CHUNK_BITS = 27;
+        /** Mask for addressing cells within a chunk */
+        private static final long      CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+        /** File */
+        private final File             file;
+        /** Access to the file */
+        private final RandomAccessFile raf;
+        /** Chunks */
+        private final DoubleBuffer[]   chunks;
+
+        /**
+         * Creates a new instance
+         * @param size
+         * @throws IOException
+         */
+        private MappedStorage(long size) throws IOException {
+            this.file = File.createTempFile("tassa", ".matrix");
+            this.file.deleteOnExit();
+            this.raf = new RandomAccessFile(file, "rw");
+            this.raf.setLength(size * 8L);
+            FileChannel channel = raf.getChannel();
+            this.chunks = new DoubleBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << CHUNK_BITS;
+                long length = Math.min(CHUNK_MASK + 1, size - position);
+                MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, position * 8L, length * 8L);
+                chunks[i] = buffer.asDoubleBuffer();
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            file.delete();
+        }
+
+        @Override
+        public void fill(long from, long to, double value) {
+            for (long index = from; index < to; index++) {
+                set(index, value);
+            }
+        }
+
+        @Override
+        public double get(long index) {
+            return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+        }
+
+        @Override
+        public void set(long index, double value) {
+            chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), value);
+        }
+    }
+
+    /** Maximal number of cells in a single array */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Creates a new storage for the given number of cells. A memory-mapped file
+     * is used, if the storage requires more than the given number of bytes or
+     * does not fit into a single array.
+     * 
+     * @param size
+     * @param limit
+     * @return
+     */
+    public static TassaClosenessStorage create(long size, long limit) {
+        if (size * 8L <= limit && size <= MAX_ARRAY_SIZE) {
+            return new HeapStorage((int) size);
+        }
+        try {
+            return new MappedStorage(size);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Releases all resources
+     */
+    public abstract void close();
+
+    /**
+     * Sets the cells in the given range
+     * @param from inclusive
+     * @param to exclusive
+     * @param value
+     */
+    public abstract void fill(long from, long to, double value);
+
+    /**
+     * Returns the given cell
+     * @param index
+     * @return
+     */
+    public abstract double get(long index);
+
+    /**
+     * Sets the given cell
+     * @param index
+     * @param value
+     */
+    public abstract void set(long index, double value);
+}
@@ -2,7 +2,11 @@ package org.deidentifier.arx.clustering;
 
 import java.util.Arrays;
 
+import cern.colt.GenericSorting;
+import cern.colt.Swapper;
+import cern.colt.function.IntComparator;
 import cern.colt.list.IntArrayList;
+import cern.colt.map.OpenIntIntHashMap;
 
 public class TassaCluster {
 
@@ -10,6 +14,10 @@ public class TassaCluster {
     private final int                   numAttributes;
     /** Identifiers of records */
     private IntArrayList                records;
+    /** Positions of the records in the list */
+    private OpenIntIntHashMap           positions;
+    /** Number of records represented by the records in the list */
+    private int                         size;
     /** Generalization levels of the cluster */
     private int[]                       generalizationLevels;
     /** Costs */
@@ -18,10 +26,12 @@ public class TassaCluster {
     private double                      lowerBoundForAdditionalInformationLoss;
     /** Manager */
     private final GeneralizationManager generalizationManager;
-    /** Id */
-    public int                          id;
+    /** Id in the registry of the current clustering, -1 if not registered */
+    public int                          id   = -1;
     /** Cache */
     private double[]                    cache;
+    /** Value counts of the records */
+    private TassaHistogram              histogram;
 
     /**
      * Creates a new cluster
@@ -34,19 +44,33 @@ public class TassaCluster {
         this.numAttributes = manager.getNumAttributes();
         this.generalizationLevels = new int[numAttributes];
         this.records = recordIdentifiers;
+        this.positions = new OpenIntIntHashMap(recordIdentifiers.size());
+        for (int i = 0; i < recordIdentifiers.size(); i++) {
+            this.positions.put(recordIdentifiers.getQuick(i), i);
+            this.size += manager.getWeight(recordIdentifiers.getQuick(i));
+        }
         this.cache = new double[numAttributes];
         Arrays.fill(this.cache, -1d);
+        this.histogram = new TassaHistogram(manager, recordIdentifiers);
         this.update();
     }
 
     public void addCluster(TassaCluster cluster) {
 
+        for (int i = 0; i < cluster.records.size(); i++) {
+            this.positions.put(cluster.records.getQuick(i), this.records.size() + i);
+        }
         this.records.addAllOf(cluster.records);
+        this.size += cluster.size;
+        this.histogram.addAll(cluster.histogram);
         this.update();
     }
 
     public void addRecord(int recordId) {
+        this.positions.put(recordId, this.records.size());
         this.records.add(recordId);
+        this.size += generalizationManager.getWeight(recordId);
+        this.histogram.add(recordId);
         this.update();
     }
 
@@ -64,6 +88,7 @@ public class TassaCluster {
     public double getInformationLossWhenAdding(int record) {
 
         return generalizationManager.getInformationLossWhenAddingRecord(this.records,
+                                                                        this.size,
                                                                         this.generalizationLevels,
                                                                         record,
                                                                         this.cache);
@@ -79,8 +104,10 @@ public class TassaCluster {
      */
     public double getInformationLossWhenAdding(TassaCluster cluster) {
         return generalizationManager.getInformationLossWhenAddingCluster(this.records,
+                                                                         this.size,
                                                                          this.generalizationLevels,
                                                                          cluster.records,
+                                                                         cluster.size,
                                                                          cluster.generalizationLevels);
     }
 
@@ -98,6 +125,8 @@ public class TassaCluster {
             return 0;
         } else {
             return generalizationManager.getInformationLossWhenRemovingRecord(this.records,
+                                                                              this.size,
+                                                                              this.histogram,
                                                                               record);
         }
     }
@@ -106,8 +135,13 @@ public class TassaCluster {
         return this.records;
     }
 
+    /**
+     * Returns the number of records represented by this cluster, including duplicates
+     * 
+     * @return
+     */
     public int getSize() {
-        return this.records.size();
+        return this.size;
     }
 
     public int[] getTransformation() {
@@ -120,22 +154,77 @@ public class TassaCluster {
     }
 
     public void removeRecord(int recordId) {
-        this.records.remove(this.records.indexOf(recordId));
+        if (!this.positions.containsKey(recordId)) {
+            throw new IllegalArgumentException("Record is not contained in this cluster: " + recordId);
+        }
+        
+        // Swap with last
+        int position = this.positions.get(recordId);
+        int last = this.records.getQuick(this.records.size() - 1);
+        this.records.setQuick(position, last);
+        this.positions.put(last, position);
+        this.records.setSize(this.records.size() - 1);
+        this.size -= generalizationManager.getWeight(recordId);
+        this.positions.removeKey(recordId);
+        this.histogram.remove(recordId);
         this.update();
     }
 
     /**
-     * Splits this cluster into a new cluster
+     * Splits this cluster into a new cluster. Two records which are far apart
+     * from each other are chosen as seeds, and each half receives the records
+     * which are closer to its seed than to the other one.
      * 
      * @return
      */
     public TassaCluster splitCluster() {
-        int splitSize = (int) (this.records.size() / 2d);
-        IntArrayList newRecordIdentifiers = new IntArrayList();
-        for (int i = splitSize; i < this.records.size(); i++) {
-            newRecordIdentifiers.add(this.records.elements()[i]);
+
+        // Choose seeds
+        int size = this.records.size();
+        final int[] elements = this.records.elements();
+        int seed1 = getFarthestRecord(elements[0]);
+        int seed2 = getFarthestRecord(seed1);
+
+        // Order records by how much closer they are to the first seed
+        final double[] preferences = new double[size];
+        for (int i = 0; i < size; i++) {
+            preferences[i] = generalizationManager.getDistance(elements[i], seed1) -
+                             generalizationManager.getDistance(elements[i], seed2);
+        }
+        GenericSorting.mergeSort(0, size, new IntComparator() {
+            @Override
+            public int compare(int a, int b) {
+                return Double.compare(preferences[a], preferences[b]);
+            }
+        }, new Swapper() {
+            @Override
+            public void swap(int a, int b) {
+                int element = elements[a];
+                elements[a] = elements[b];
+                elements[b] = element;
+                double preference = preferences[a];
+                preferences[a] = preferences[b];
+                preferences[b] = preference;
+            }
+        });
+
+        // Split, such that both halves represent about the same number of records
+        int splitSize = 0;
+        int splitWeight = 0;
+        while (splitSize < size - 1 && (splitSize == 0 || splitWeight < this.size / 2)) {
+            splitWeight += generalizationManager.getWeight(elements[splitSize++]);
+        }
+        IntArrayList newRecordIdentifiers = new IntArrayList(size - splitSize);
+        for (int i = splitSize; i < size; i++) {
+            newRecordIdentifiers.add(elements[i]);
+            this.positions.removeKey(elements[i]);
         }
         this.records.setSize(splitSize);
+        this.size = splitWeight;
+        for (int i = 0; i < splitSize; i++) {
+            this.positions.put(elements[i], i);
+        }
+        this.histogram = new TassaHistogram(generalizationManager, this.records);
         this.update();
         return new TassaCluster(generalizationManager, newRecordIdentifiers);
     }
@@ -148,20 +237,42 @@ public class TassaCluster {
     }
     
 
+    /**
+     * Returns the record of this cluster which is farthest from the given one
+     * 
+     * @param record
+     * @return
+     */
+    private int getFarthestRecord(int record) {
+        double distance = -1d;
+        int result = record;
+        for (int i = 0; i < this.records.size(); i++) {
+            int other = this.records.getQuick(i);
+            double _distance = generalizationManager.getDistance(record, other);
+            if (_distance > distance) {
+                distance = _distance;
+                result = other;
+            }
+        }
+        return result;
+    }
+
     /**
      * Updates the cluster
      * The information loss includes the cluster size / is not normalized.
      */
     private void update() {
         // If cluster is empty
-        if (this.getSize() == 0) {
+        if (this.records.size() == 0) {
             this.informationLoss = 0d;
             // Else, update
         } else {
             this.informationLoss = generalizationManager.getInformationLoss(this.records,
+                                                                            this.size,
+                                                                            this.histogram,
                                                                             this.generalizationLevels,
                                                                             this.cache);
-            this.lowerBoundForAdditionalInformationLoss = this.informationLoss / (double)this.records.size();
+            this.lowerBoundForAdditionalInformationLoss = this.informationLoss / (double)this.size;
         }
     }
 }
@@ -0,0 +1,407 @@
+package org.deidentifier.arx.clustering;
+
+import java.util.Arrays;
+
+import cern.colt.list.IntArrayList;
+
+/**
+ * Inverted index from generalized values to the clusters whose generalization
+ * covers them. A cluster is stored once per attribute, under the level and
+ * value to which this attribute is generalized. Attributes generalized to the
+ * top level are not indexed, as they cover every record.<br>
+ * <br>
+ * A query for a record looks up the attribute for which the fewest clusters
+ * cover the record and ranks these clusters by the number of attributes in
+ * which they cover the record. Clusters covering all attributes can take the
+ * record without any additional generalization.<br>
+ * <br>
+ * Additionally, all clusters are kept ordered by their lower bound on the
+ * additional information loss, which allows to stop searching for the closest
+ * cluster as soon as the remaining bounds exceed the best value found.<br>
+ * <br>
+ * Queries keep their state in instances of {@link Query}. Multiple queries may
+ * be executed concurrently, as long as the index is not modified.
+ */
+public class TassaClusterIndex {
+
+    /** Manager */
+    private final GeneralizationManager manager;
+    /** Number of attributes */
+    private final int                   numAttributes;
+    /** Heights of the hierarchies */
+    private final int[]                 heights;
+    /** Ids of clusters per attribute, indexed by value * height + level */
+    private final IntArrayList[][]      buckets;
+    /** Registry of the clusters */
+    private final TassaClusterRegistry  registry;
+    /** Number of ids for which space has been allocated */
+    private int                         capacity = 0;
+    /** Indexed levels, at id * numAttributes + attribute */
+    private int[]                       levels;
+    /** Indexed values, at id * numAttributes + attribute. -1 if not indexed */
+    private int[]                       values;
+    /** Positions in buckets, at id * numAttributes + attribute */
+    private int[]                       positions;
+    /** Lower bounds on the additional information loss, by id */
+    private double[]                    bounds;
+    /** Ids ordered by their lower bound */
+    private int[]                       order;
+    /** Positions of the ids in the order */
+    private int[]                       ranks;
+    /** Number of clusters */
+    private int                         size     = 0;
+
+    /**
+     * State of a query for the clusters which cover a record
+     */
+    public class Query {
+
+        /** Marks the ids found by the last query */
+        private int[]         stamps    = new int[0];
+        /** Identifies the last query */
+        private int           stamp     = 0;
+        /** Number of attributes covered, by id */
+        private int[]         hits;
+        /** Ids found by the last query */
+        private int[]         found;
+        /** Ids found by the last query, ordered by number of attributes covered */
+        private int[]         candidates;
+        /** Histogram used for sorting */
+        private final int[]   histogram = new int[numAttributes + 2];
+        /** Paths of the record of the last query */
+        private final int[][] paths     = new int[numAttributes][];
+
+        /**
+         * Creates a new instance
+         */
+        private Query() {
+            // Empty by design
+        }
+
+        /**
+         * Returns the i-th candidate found by the last query
+         * 
+         * @param index
+         * @return
+         */
+        public TassaCluster getCandidate(int index) {
+            return registry.getClusterById(candidates[index]);
+        }
+
+        /**
+         * Searches for the clusters which cover the given record in the most
+         * selective attribute. They can be accessed with getCandidate() in
+         * descending order of the number of attributes covered.
+         * 
+         * @param record
+         * @return the number of candidates
+         */
+        public int getCandidates(int record) {
+
+            // Prepare
+            if (stamps.length < capacity) {
+                allocate(capacity);
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+
+            // Find the attribute for which the fewest clusters cover the record
+            int selection = -1;
+            int selectionSize = Integer.MAX_VALUE;
+            for (int dimension = 0; dimension < numAttributes; dimension++) {
+                int[] path = manager.getPath(record, dimension);
+                IntArrayList[] buckets = TassaClusterIndex.this.buckets[dimension];
+                int height = heights[dimension];
+                int size = 0;
+                for (int level = 0; level < height - 1 && size < selectionSize; level++) {
+                    IntArrayList bucket = buckets[path[level] * height + level];
+                    size += bucket == null ? 0 : bucket.size();
+                }
+                if (size < selectionSize) {
+                    selection = dimension;
+                    selectionSize = size;
+                }
+                paths[dimension] = path;
+            }
+            if (selectionSize == 0) {
+                return 0;
+            }
+
+            // Collect and count the number of attributes covered
+            int count = 0;
+            int[] path = paths[selection];
+            int height = heights[selection];
+            for (int level = 0; level < height - 1; level++) {
+                IntArrayList bucket = buckets[selection][path[level] * height + level];
+                if (bucket != null) {
+                    int[] elements = bucket.elements();
+                    for (int i = 0; i < bucket.size(); i++) {
+                        int id = elements[i];
+                        stamps[id] = stamp;
+                        hits[id] = getNumAttributesCovered(id);
+                        found[count++] = id;
+                    }
+                }
+            }
+
+            // Sort by number of hits, descending
+            Arrays.fill(histogram, 0);
+            for (int i = 0; i < count; i++) {
+                histogram[numAttributes - hits[found[i]] + 1]++;
+            }
+            for (int i = 1; i < histogram.length; i++) {
+                histogram[i] += histogram[i - 1];
+            }
+            for (int i = 0; i < count; i++) {
+                int id = found[i];
+                candidates[histogram[numAttributes - hits[id]]++] = id;
+            }
+            return count;
+        }
+
+        /**
+         * Returns whether the cluster has been found by the last query
+         * 
+         * @param cluster
+         * @return
+         */
+        public boolean isCandidate(TassaCluster cluster) {
+            return stamps[cluster.id] == stamp;
+        }
+
+        /**
+         * Allocates space for the given number of ids
+         * 
+         * @param capacity
+         */
+        private void allocate(int capacity) {
+            stamps = Arrays.copyOf(stamps, capacity);
+            hits = new int[capacity];
+            found = new int[capacity];
+            candidates = new int[capacity];
+        }
+
+        /**
+         * Returns the number of attributes in which the cluster with the given id
+         * covers the record of the current query
+         * 
+         * @param id
+         * @return
+         */
+        private int getNumAttributesCovered(int id) {
+            int covered = 0;
+            int offset = id * numAttributes;
+            for (int dimension = 0; dimension < numAttributes; dimension++) {
+                int value = values[offset + dimension];
+                if (value == -1 || paths[dimension][levels[offset + dimension]] == value) {
+                    covered++;
+                }
+            }
+            return covered;
+        }
+    }
+
+    /**
+     * Creates a new instance
+     * 
+     * @param manager
+     * @param registry
+     */
+    public TassaClusterIndex(GeneralizationManager manager, TassaClusterRegistry registry) {
+        this.manager = manager;
+        this.registry = registry;
+        this.numAttributes = manager.getNumAttributes();
+        this.heights = new int[numAttributes];
+        this.buckets = new IntArrayList[numAttributes][];
+        for (int dimension = 0; dimension < numAttributes; dimension++) {
+            this.heights[dimension] = manager.getHeight(dimension);
+            this.buckets[dimension] = new IntArrayList[manager.getNumValues(dimension) * heights[dimension]];
+        }
+        this.allocate(registry.getCapacity());
+    }
+
+    /**
+     * Adds a cluster, which must be registered
+     * 
+     * @param cluster
+     */
+    public void add(TassaCluster cluster) {
+        int id = cluster.id;
+        if (id >= capacity) {
+            allocate(registry.getCapacity());
+        }
+        bounds[id] = cluster.getLowerBoundForAdditionalInformationLoss();
+        order[size] = id;
+        ranks[id] = size++;
+        for (int dimension = 0; dimension < numAttributes; dimension++) {
+            levels[id * numAttributes + dimension] = heights[dimension] - 1;
+            values[id * numAttributes + dimension] = -1;
+        }
+        update(cluster);
+    }
+
+    /**
+     * Returns the cluster with the given rank in ascending order of lower
+     * bounds
+     * 
+     * @param rank
+     * @return
+     */
+    public TassaCluster getClusterByRank(int rank) {
+        return registry.getClusterById(order[rank]);
+    }
+
+    /**
+     * Returns the rank of the given cluster in ascending order of lower
+     * bounds
+     * 
+     * @param cluster
+     * @return
+     */
+    public int getRank(TassaCluster cluster) {
+        return ranks[cluster.id];
+    }
+
+    /**
+     * Returns the lower bound of the cluster with the given rank
+     * 
+     * @param rank
+     * @return
+     */
+    public double getLowerBound(int rank) {
+        return bounds[order[rank]];
+    }
+
+    /**
+     * Returns the number of clusters
+     * 
+     * @return
+     */
+    public int getNumClusters() {
+        return size;
+    }
+
+    /**
+     * Creates a new query
+     * 
+     * @return
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    /**
+     * Removes a cluster
+     * 
+     * @param cluster
+     */
+    public void remove(TassaCluster cluster) {
+        int id = cluster.id;
+        for (int dimension = 0; dimension < numAttributes; dimension++) {
+            removeFromBucket(id, dimension);
+        }
+        for (int rank = ranks[id]; rank < size - 1; rank++) {
+            order[rank] = order[rank + 1];
+            ranks[order[rank]] = rank;
+        }
+        size--;
+    }
+
+    /**
+     * Updates the index after the generalization of the cluster may have
+     * changed
+     * 
+     * @param cluster
+     */
+    public void update(TassaCluster cluster) {
+        int id = cluster.id;
+        int[] generalization = cluster.getGeneralization();
+        int representative = cluster.getRecords().getQuick(0);
+        for (int dimension = 0; dimension < numAttributes; dimension++) {
+            int height = heights[dimension];
+            int level = generalization[dimension];
+            int value = level == height - 1 ? -1 : manager.getPath(representative, dimension)[level];
+            int offset = id * numAttributes + dimension;
+            if (level != levels[offset] || value != values[offset]) {
+                removeFromBucket(id, dimension);
+                levels[offset] = level;
+                values[offset] = value;
+                if (value != -1) {
+                    int key = value * height + level;
+                    IntArrayList bucket = buckets[dimension][key];
+                    if (bucket == null) {
+                        bucket = new IntArrayList(4);
+                        buckets[dimension][key] = bucket;
+                    }
+                    positions[offset] = bucket.size();
+                    bucket.add(id);
+                }
+            }
+        }
+        updateOrder(id, cluster.getLowerBoundForAdditionalInformationLoss());
+    }
+
+    /**
+     * Allocates space for the given number of ids
+     * 
+     * @param capacity
+     */
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        int length = capacity * numAttributes;
+        levels = levels == null ? new int[length] : Arrays.copyOf(levels, length);
+        values = values == null ? new int[length] : Arrays.copyOf(values, length);
+        positions = positions == null ? new int[length] : Arrays.copyOf(positions, length);
+        bounds = bounds == null ? new double[capacity] : Arrays.copyOf(bounds, capacity);
+        order = order == null ? new int[capacity] : Arrays.copyOf(order, capacity);
+        ranks = ranks == null ? new int[capacity] : Arrays.copyOf(ranks, capacity);
+    }
+
+    /**
+     * Removes the id from the bucket in which it is stored for the given
+     * attribute
+     * 
+     * @param id
+     * @param dimension
+     */
+    private void removeFromBucket(int id, int dimension) {
+        int offset = id * numAttributes + dimension;
+        int value = values[offset];
+        if (value == -1) {
+            return;
+        }
+        IntArrayList bucket = buckets[dimension][value * heights[dimension] + levels[offset]];
+        int position = positions[offset];
+        int last = bucket.getQuick(bucket.size() - 1);
+        bucket.setQuick(position, last);
+        positions[last * numAttributes + dimension] = position;
+        bucket.setSize(bucket.size() - 1);
+        values[offset] = -1;
+    }
+
+    /**
+     * Restores the order after the lower bound of the cluster with the given id
+     * has changed
+     * 
+     * @param id
+     * @param bound
+     */
+    private void updateOrder(int id, double bound) {
+        int rank = ranks[id];
+        bounds[id] = bound;
+        while (rank > 0 && bounds[order[rank - 1]] > bound) {
+            order[rank] = order[rank - 1];
+            ranks[order[rank]] = rank;
+            rank--;
+        }
+        while (rank < size - 1 && bounds[order[rank + 1]] < bound) {
+            order[rank] = order[rank + 1];
+            ranks[order[rank]] = rank;
+            rank++;
+        }
+        order[rank] = id;
+        ranks[id] = rank;
+    }
+}
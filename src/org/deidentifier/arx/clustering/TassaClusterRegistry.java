@@ -0,0 +1,224 @@
+package org.deidentifier.arx.clustering;
+
+import java.util.Arrays;
+
+import cern.colt.list.IntArrayList;
+
+/**
+ * Registry of the clusters of a clustering. Every registered cluster is given
+ * a dense id, which serves as its handle while it is registered. Ids of removed
+ * clusters are reused. Sizes, information losses, lower bounds and
+ * generalization levels are mirrored in primitive arrays indexed by id, which
+ * must be refreshed with update() after a cluster has been modified.
+ * Registered clusters can be iterated with getId() or getCluster() for all
+ * positions from 0 to size() - 1.
+ */
+public class TassaClusterRegistry {
+
+    /** Number of attributes */
+    private final int            numAttributes;
+    /** Clusters by id */
+    private TassaCluster[]       clusters;
+    /** Ids of the registered clusters */
+    private int[]                members;
+    /** Positions of the ids in members */
+    private int[]                positions;
+    /** Number of registered clusters */
+    private int                  size = 0;
+    /** Free ids */
+    private final IntArrayList   free = new IntArrayList();
+    /** Number of ids used so far */
+    private int                  used = 0;
+    /** Sizes by id */
+    private int[]                sizes;
+    /** Information losses by id */
+    private double[]             losses;
+    /** Lower bounds on the additional information loss by id */
+    private double[]             bounds;
+    /** Generalization levels, at id * numAttributes + attribute */
+    private int[]                levels;
+
+    /**
+     * Creates a new instance
+     * 
+     * @param numAttributes
+     */
+    public TassaClusterRegistry(int numAttributes) {
+        this.numAttributes = numAttributes;
+        this.allocate(64);
+    }
+
+    /**
+     * Registers a cluster and assigns an id
+     * 
+     * @param cluster
+     */
+    public void add(TassaCluster cluster) {
+        if (cluster.id != -1) {
+            throw new IllegalStateException("Cluster is already registered");
+        }
+        int id;
+        if (free.isEmpty()) {
+            if (used == clusters.length) {
+                allocate(clusters.length * 2);
+            }
+            id = used++;
+        } else {
+            id = free.getQuick(free.size() - 1);
+            free.remove(free.size() - 1);
+        }
+        cluster.id = id;
+        clusters[id] = cluster;
+        members[size] = id;
+        positions[id] = size++;
+        update(cluster);
+    }
+
+    /**
+     * Returns the number of ids which may be used by registered clusters
+     * 
+     * @return
+     */
+    public int getCapacity() {
+        return clusters.length;
+    }
+
+    /**
+     * Returns the cluster at the given position
+     * 
+     * @param position
+     * @return
+     */
+    public TassaCluster getCluster(int position) {
+        return clusters[members[position]];
+    }
+
+    /**
+     * Returns the cluster with the given id
+     * 
+     * @param id
+     * @return
+     */
+    public TassaCluster getClusterById(int id) {
+        return clusters[id];
+    }
+
+    /**
+     * Returns the generalization level of the cluster with the given id
+     * 
+     * @param id
+     * @param dimension
+     * @return
+     */
+    public int getGeneralizationLevel(int id, int dimension) {
+        return levels[id * numAttributes + dimension];
+    }
+
+    /**
+     * Returns the id of the cluster at the given position
+     * 
+     * @param position
+     * @return
+     */
+    public int getId(int position) {
+        return members[position];
+    }
+
+    /**
+     * Returns the information loss of the cluster with the given id
+     * 
+     * @param id
+     * @return
+     */
+    public double getInformationLoss(int id) {
+        return losses[id];
+    }
+
+    /**
+     * Returns the lower bound on the additional information loss of the
+     * cluster with the given id
+     * 
+     * @param id
+     * @return
+     */
+    public double getLowerBound(int id) {
+        return bounds[id];
+    }
+
+    /**
+     * Returns the size of the cluster with the given id
+     * 
+     * @param id
+     * @return
+     */
+    public int getSize(int id) {
+        return sizes[id];
+    }
+
+    /**
+     * Returns the total information loss of all registered clusters
+     * 
+     * @return
+     */
+    public double getTotalInformationLoss() {
+        double result = 0d;
+        for (int i = 0; i < size; i++) {
+            result += losses[members[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Removes a cluster. Its id may be reused.
+     * 
+     * @param cluster
+     */
+    public void remove(TassaCluster cluster) {
+        int id = cluster.id;
+        int position = positions[id];
+        int last = members[--size];
+        members[position] = last;
+        positions[last] = position;
+        clusters[id] = null;
+        cluster.id = -1;
+        free.add(id);
+    }
+
+    /**
+     * Returns the number of registered clusters
+     * 
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Refreshes the properties of the given cluster
+     * 
+     * @param cluster
+     */
+    public void update(TassaCluster cluster) {
+        int id = cluster.id;
+        sizes[id] = cluster.getSize();
+        losses[id] = cluster.getInformationLoss();
+        bounds[id] = cluster.getLowerBoundForAdditionalInformationLoss();
+        System.arraycopy(cluster.getGeneralization(), 0, levels, id * numAttributes, numAttributes);
+    }
+
+    /**
+     * Allocates space for the given number of ids
+     * 
+     * @param capacity
+     */
+    private void allocate(int capacity) {
+        clusters = clusters == null ? new TassaCluster[capacity] : Arrays.copyOf(clusters, capacity);
+        members = members == null ? new int[capacity] : Arrays.copyOf(members, capacity);
+        positions = positions == null ? new int[capacity] : Arrays.copyOf(positions, capacity);
+        sizes = sizes == null ? new int[capacity] : Arrays.copyOf(sizes, capacity);
+        losses = losses == null ? new double[capacity] : Arrays.copyOf(losses, capacity);
+        bounds = bounds == null ? new double[capacity] : Arrays.copyOf(bounds, capacity);
+        int length = capacity * numAttributes;
+        levels = levels == null ? new int[length] : Arrays.copyOf(levels, length);
+    }
+}
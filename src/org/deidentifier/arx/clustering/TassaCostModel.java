@@ -0,0 +1,66 @@
+package org.deidentifier.arx.clustering;
+
+import cern.colt.list.IntArrayList;
+
+/**
+ * Measure of information loss which is optimized by Tassa. Costs are not
+ * normalized and include the number of records represented by a cluster. The
+ * costs of a cluster divided by its size must be a lower bound on the
+ * additional costs per record which is added to it, as clusters are pruned
+ * with this bound. Costs are evaluated in the inner loops of the algorithm,
+ * also concurrently, so implementations must neither allocate memory nor
+ * modify any state other than the given arrays.
+ */
+public interface TassaCostModel {
+
+    /**
+     * Returns the costs of a cluster. This method has two side effects: it
+     * updates the generalization and cache arrays of the cluster.
+     * @param records
+     * @param size number of records represented by the cluster
+     * @param histogram
+     * @param generalization
+     * @param cache
+     * @return
+     */
+    public double getCost(IntArrayList records, int size, TassaHistogram histogram, int[] generalization, double[] cache);
+
+    /**
+     * Returns the costs of the union of two clusters
+     * @param records1
+     * @param size1 number of records represented by the first cluster
+     * @param generalization1
+     * @param records2
+     * @param size2 number of records represented by the second cluster
+     * @param generalization2
+     * @return
+     */
+    public double getCostWhenAddingCluster(IntArrayList records1,
+                                           int size1,
+                                           int[] generalization1,
+                                           IntArrayList records2,
+                                           int size2,
+                                           int[] generalization2);
+
+    /**
+     * Returns the costs of a cluster after adding the given record
+     * @param records
+     * @param size number of records represented by the cluster
+     * @param generalization
+     * @param record
+     * @param cache
+     * @return
+     */
+    public double getCostWhenAddingRecord(IntArrayList records, int size, int[] generalization, int record, double[] cache);
+
+    /**
+     * Returns the costs of a cluster with more than one record after removing
+     * the given record
+     * @param records
+     * @param size number of records represented by the cluster
+     * @param histogram
+     * @param record
+     * @return
+     */
+    public double getCostWhenRemovingRecord(IntArrayList records, int size, TassaHistogram histogram, int record);
+}
@@ -0,0 +1,53 @@
+package org.deidentifier.arx.clustering;
+
+import cern.colt.list.IntArrayList;
+
+/**
+ * Discernibility, which charges each record the size of its cluster. The costs
+ * of a cluster are thus its size squared and do not depend on the
+ * generalization.
+ */
+public class TassaDiscernibilityCostModel implements TassaCostModel {
+
+    /** Manager */
+    private final GeneralizationManager manager;
+
+    /**
+     * Creates a new instance
+     * @param manager
+     */
+    public TassaDiscernibilityCostModel(GeneralizationManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public double getCost(IntArrayList records, int size, TassaHistogram histogram, int[] generalization, double[] cache) {
+        for (int i = 0; i < generalization.length; i++) {
+            generalization[i] = histogram.getGeneralizationLevel(i);
+        }
+        return (double) size * size;
+    }
+
+    @Override
+    public double getCostWhenAddingCluster(IntArrayList records1,
+                                           int size1,
+                                           int[] generalization1,
+                                           IntArrayList records2,
+                                           int size2,
+                                           int[] generalization2) {
+        double size = size1 + size2;
+        return size * size;
+    }
+
+    @Override
+    public double getCostWhenAddingRecord(IntArrayList records, int size, int[] generalization, int record, double[] cache) {
+        double result = size + manager.getWeight(record);
+        return result * result;
+    }
+
+    @Override
+    public double getCostWhenRemovingRecord(IntArrayList records, int size, TassaHistogram histogram, int record) {
+        double result = size - manager.getWeight(record);
+        return result * result;
+    }
+}
@@ -0,0 +1,50 @@
+package org.deidentifier.arx.clustering;
+
+/**
+ * Non-uniform entropy, which charges a record -log2(n(v) / n(g)) per
+ * attribute, where n(v) is the number of records with its value v and n(g) the
+ * number of records whose values are generalized to its generalized value g,
+ * both counted in the input. Costs of a cluster omit the term log2(n(v)) of
+ * each record, which does not depend on the clustering. Costs thus differ from
+ * the entropy by a constant, while the differences which are compared when
+ * moving records and merging clusters are exact. Records which are added to
+ * the manager later are not counted.
+ */
+public class TassaEntropyCostModel extends TassaAttributeCostModel {
+
+    /**
+     * Creates a new instance
+     * @param manager
+     */
+    public TassaEntropyCostModel(GeneralizationManager manager) {
+        super(manager, getCosts(manager), 1d);
+    }
+
+    /**
+     * Returns log2(n(g)) per attribute, indexed by level * number of values + value
+     * @param manager
+     * @return
+     */
+    private static double[][] getCosts(GeneralizationManager manager) {
+
+        // Count records per generalized value
+        double[][] costs = new double[manager.getNumAttributes()][];
+        for (int i = 0; i < costs.length; i++) {
+            int numValues = manager.getNumValues(i);
+            int height = manager.getHeight(i);
+            costs[i] = new double[height * numValues];
+            for (int record : manager.getRepresentatives()) {
+                int[] path = manager.getPath(record, i);
+                for (int level = 0; level < height; level++) {
+                    costs[i][level * numValues + path[level]] += manager.getWeight(record);
+                }
+            }
+
+            // Values which do not occur are counted once
+            for (int j = 0; j < costs[i].length; j++) {
+                costs[i][j] = Math.log(Math.max(costs[i][j], 1d)) / Math.log(2d);
+            }
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,158 @@
+package org.deidentifier.arx.clustering;
+
+import cern.colt.function.IntIntProcedure;
+import cern.colt.list.IntArrayList;
+import cern.colt.map.OpenIntIntHashMap;
+
+/**
+ * Counts the generalized values of the records in a cluster on each level of
+ * each hierarchy. Generalization levels can thus be maintained in
+ * O(#attributes * height) when records are added or removed, independent of
+ * the size of the cluster.
+ */
+public class TassaHistogram {
+
+    /** Manager */
+    private final GeneralizationManager manager;
+    /** Number of distinct values per attribute and level */
+    private final int[][]               distinct;
+    /** Counts per attribute, indexed by value * height + level */
+    private final OpenIntIntHashMap[]   counts;
+    /** Heights of the hierarchies */
+    private final int[]                 heights;
+
+    /**
+     * Creates a new instance
+     * 
+     * @param manager
+     * @param records
+     */
+    public TassaHistogram(GeneralizationManager manager, IntArrayList records) {
+        this.manager = manager;
+        int numAttributes = manager.getNumAttributes();
+        this.distinct = new int[numAttributes][];
+        this.counts = new OpenIntIntHashMap[numAttributes];
+        this.heights = new int[numAttributes];
+        for (int dimension = 0; dimension < numAttributes; dimension++) {
+            this.heights[dimension] = manager.getHeight(dimension);
+            this.distinct[dimension] = new int[heights[dimension]];
+            this.counts[dimension] = new OpenIntIntHashMap(heights[dimension] * 4);
+        }
+        for (int i = 0; i < records.size(); i++) {
+            add(records.getQuick(i));
+        }
+    }
+
+    /**
+     * Adds a record
+     * 
+     * @param record
+     */
+    public void add(int record) {
+        for (int dimension = 0; dimension < counts.length; dimension++) {
+            int[] path = manager.getPath(record, dimension);
+            int[] distinct = this.distinct[dimension];
+            OpenIntIntHashMap map = counts[dimension];
+            int height = heights[dimension];
+            for (int level = 0; level < height; level++) {
+                int key = path[level] * height + level;
+                int count = map.get(key);
+                if (count == 0) {
+                    distinct[level]++;
+                }
+                map.put(key, count + 1);
+            }
+        }
+    }
+
+    /**
+     * Adds all records counted by the other histogram
+     * 
+     * @param other
+     */
+    public void addAll(TassaHistogram other) {
+        for (int dimension = 0; dimension < counts.length; dimension++) {
+            final int[] distinct = this.distinct[dimension];
+            final OpenIntIntHashMap map = counts[dimension];
+            final int height = heights[dimension];
+            other.counts[dimension].forEachPair(new IntIntProcedure() {
+                @Override
+                public boolean apply(int key, int value) {
+                    int count = map.get(key);
+                    if (count == 0) {
+                        distinct[key % height]++;
+                    }
+                    map.put(key, count + value);
+                    return true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the generalization level required for the given attribute
+     * 
+     * @param dimension
+     * @return
+     */
+    public int getGeneralizationLevel(int dimension) {
+        int[] distinct = this.distinct[dimension];
+        int top = heights[dimension] - 1;
+        for (int level = 0; level < top; level++) {
+            if (distinct[level] <= 1) {
+                return level;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the generalization level required for the given attribute, if
+     * the given record would be removed
+     * 
+     * @param dimension
+     * @param record
+     * @return
+     */
+    public int getGeneralizationLevelWhenRemoving(int dimension, int record) {
+        int[] path = manager.getPath(record, dimension);
+        int[] distinct = this.distinct[dimension];
+        OpenIntIntHashMap map = counts[dimension];
+        int height = heights[dimension];
+        int top = height - 1;
+        for (int level = 0; level < top; level++) {
+            int remaining = distinct[level];
+            if (map.get(path[level] * height + level) == 1) {
+                remaining--;
+            }
+            if (remaining <= 1) {
+                return level;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Removes a record
+     * 
+     * @param record
+     */
+    public void remove(int record) {
+        for (int dimension = 0; dimension < counts.length; dimension++) {
+            int[] path = manager.getPath(record, dimension);
+            int[] distinct = this.distinct[dimension];
+            OpenIntIntHashMap map = counts[dimension];
+            int height = heights[dimension];
+            for (int level = 0; level < height; level++) {
+                int key = path[level] * height + level;
+                int count = map.get(key);
+                if (count == 1) {
+                    map.removeKey(key);
+                    distinct[level]--;
+                } else {
+                    map.put(key, count - 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.deidentifier.arx.clustering;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXInterface;
+import org.deidentifier.arx.ARXLattice.ARXNode;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.benchmark.BenchmarkAlgorithm;
+import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkUtilityMeasure;
+import org.deidentifier.arx.benchmark.IBenchmarkListener;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.map.OpenIntObjectHashMap;
+
+/**
+ * Benchmark algorithm that first executes FLASH and then refines its result
+ * with Tassa. The equivalence classes of the global optimum are used as the
+ * initial clustering, so that local recoding starts from a k-anonymous
+ * solution instead of a random one.
+ */
+public class TassaHybridAlgorithm extends BenchmarkAlgorithm {
+
+    /** Interface */
+    private final ARXInterface      arxInterface;
+    /** Data */
+    private final Data              data;
+    /** Configuration */
+    private final ARXConfiguration  config;
+    /** Anonymizer used for global recoding */
+    private final ARXAnonymizer     anonymizer;
+    /** Modifier for the initial size of clusters, only used if there is no solution */
+    private double                  alpha          = 0.5;
+    /** Modifier for the maximum size of clusters */
+    private double                  omega          = 1.5;
+    /** Logging */
+    private boolean                 logging        = false;
+    /** Number of threads used for moving records */
+    private int                     numThreads     = 1;
+    /** Measure of information loss which is optimized by local recoding */
+    private BenchmarkUtilityMeasure utilityMeasure = BenchmarkUtilityMeasure.LOSS;
+    /** Statistics of the last execution */
+    private TassaStatistics         statistics     = null;
+
+    /**
+     * Create a new instance
+     * 
+     * @param listener
+     * @param data
+     * @param config
+     * @throws IOException
+     */
+    public TassaHybridAlgorithm(IBenchmarkListener listener,
+                                Data data,
+                                ARXConfiguration config) throws IOException {
+        super(listener);
+        this.arxInterface = new ARXInterface(data, config);
+        this.anonymizer = new ARXAnonymizer();
+        this.data = data;
+        this.config = config;
+    }
+
+    @Override
+    public void execute() throws IOException {
+
+        this.statistics = null;
+        super.start();
+
+        // Global recoding
+        ARXResult result = anonymizer.anonymize(data, config);
+        ARXNode optimum = result.getGlobalOptimum();
+        data.getHandle().release();
+
+        // Initial clustering, random if there is no solution
+        Set<TassaCluster> clustering = null;
+        if (optimum != null) {
+            int[] generalization = new int[arxInterface.getNumAttributes()];
+            for (int i = 0; i < generalization.length; i++) {
+                generalization[i] = optimum.getGeneralization(arxInterface.getAttribute(i));
+            }
+            clustering = getEquivalenceClasses(arxInterface.getGeneralizationManager(), generalization);
+        }
+
+        // Local recoding
+        TassaAlgorithmImpl algorithm = new TassaAlgorithmImpl(arxInterface);
+        algorithm.setLogging(this.logging);
+        algorithm.setNumThreads(this.numThreads);
+        algorithm.execute(alpha, omega, clustering);
+        this.statistics = algorithm.getStatistics();
+        super.finished(TassaAlgorithm.getOutputTableWithoutHeader(arxInterface, algorithm.getOutputBuffer()));
+    }
+
+    /**
+     * Returns omega
+     * 
+     * @return
+     */
+    public double getOmega() {
+        return omega;
+    }
+
+    /**
+     * Returns the statistics of the last execution
+     * 
+     * @return
+     */
+    public TassaStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Returns the measure of information loss which is optimized by local
+     * recoding
+     * 
+     * @return
+     */
+    public BenchmarkUtilityMeasure getUtilityMeasure() {
+        return utilityMeasure;
+    }
+
+    /**
+     * Enables/disables logging
+     * 
+     * @param logging
+     */
+    public void setLogging(boolean logging) {
+        this.logging = logging;
+    }
+
+    /**
+     * Sets the number of threads used for moving records
+     * 
+     * @param numThreads
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1) { throw new IllegalArgumentException("Number of threads must be at least one: " +
+                                                                 numThreads); }
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Sets omega
+     * 
+     * @param omega
+     */
+    public void setOmega(double omega) {
+        this.omega = omega;
+    }
+
+    /**
+     * Sets the measure of information loss which is optimized by local
+     * recoding. Global recoding uses the metric of the configuration.
+     * 
+     * @param utilityMeasure
+     */
+    public void setUtilityMeasure(BenchmarkUtilityMeasure utilityMeasure) {
+        GeneralizationManager manager = arxInterface.getGeneralizationManager();
+        manager.setCostModel(TassaAlgorithm.getCostModel(manager, utilityMeasure));
+        this.utilityMeasure = utilityMeasure;
+    }
+
+    /**
+     * Returns one cluster per equivalence class of the given transformation.
+     * Only representatives of distinct tuples are added, as their duplicates
+     * are always in the same class.
+     * 
+     * @param manager
+     * @param generalization
+     * @return
+     */
+    private Set<TassaCluster> getEquivalenceClasses(GeneralizationManager manager, int[] generalization) {
+
+        // Group records by their generalized tuples
+        List<int[]> tuples = new ArrayList<int[]>();
+        List<IntArrayList> classes = new ArrayList<IntArrayList>();
+        OpenIntObjectHashMap buckets = new OpenIntObjectHashMap();
+        for (int record : manager.getRepresentatives()) {
+            int[] tuple = manager.getTransformation(record, generalization);
+            int hash = Arrays.hashCode(tuple);
+            IntArrayList bucket = (IntArrayList) buckets.get(hash);
+            if (bucket == null) {
+                bucket = new IntArrayList(1);
+                buckets.put(hash, bucket);
+            }
+
+            // Find class
+            int index = -1;
+            for (int i = 0; i < bucket.size() && index == -1; i++) {
+                if (Arrays.equals(tuples.get(bucket.getQuick(i)), tuple)) {
+                    index = bucket.getQuick(i);
+                }
+            }
+            if (index == -1) {
+                index = classes.size();
+                bucket.add(index);
+                tuples.add(tuple);
+                classes.add(new IntArrayList());
+            }
+            classes.get(index).add(record);
+        }
+
+        // Create clusters
+        Set<TassaCluster> result = new HashSet<TassaCluster>();
+        for (IntArrayList records : classes) {
+            result.add(new TassaCluster(manager, records));
+        }
+        return result;
+    }
+}
@@ -91,6 +91,16 @@ public class TassaLogger {
         this.ticks = 0;
     }
 
+    /**
+     * Reports a problem which does not stop the execution
+     * @param message
+     */
+    public void warn(String message) {
+        if (logging) {
+            System.out.println("Warning: " + message);
+        }
+    }
+
     /**
      * Enable/disable
      * @param logging
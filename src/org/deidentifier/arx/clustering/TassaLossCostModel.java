@@ -0,0 +1,35 @@
+package org.deidentifier.arx.clustering;
+
+/**
+ * Loss, which is the average domain share of the generalized values of a
+ * record. This is the cost model used by default.
+ */
+public class TassaLossCostModel extends TassaAttributeCostModel {
+
+    /**
+     * Creates a new instance
+     * @param manager
+     */
+    public TassaLossCostModel(GeneralizationManager manager) {
+        super(manager, getCosts(manager), manager.getNumAttributes());
+    }
+
+    /**
+     * Returns the domain shares per attribute, indexed by level * number of values + value
+     * @param manager
+     * @return
+     */
+    private static double[][] getCosts(GeneralizationManager manager) {
+        double[][] costs = new double[manager.getNumAttributes()][];
+        for (int i = 0; i < costs.length; i++) {
+            int numValues = manager.getNumValues(i);
+            costs[i] = new double[manager.getHeight(i) * numValues];
+            for (int level = 0; level < manager.getHeight(i); level++) {
+                for (int value = 0; value < numValues; value++) {
+                    costs[i][level * numValues + value] = manager.getDomainShare(i, level, value);
+                }
+            }
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,33 @@
+package org.deidentifier.arx.clustering;
+
+/**
+ * Determines the order in which clusters with size < k are merged when
+ * finalizing a clustering. Clusters which reach size k are removed from the
+ * queue by the caller.
+ */
+public interface TassaMergeQueue {
+
+    /**
+     * Releases all resources
+     */
+    public void close();
+
+    /**
+     * Returns the next pair of clusters to be merged, null if there is none
+     * @return
+     */
+    public TassaPair<TassaCluster, TassaCluster> getClosestTwoClusters();
+
+    /**
+     * Second has been merged into first
+     * @param first
+     * @param second
+     */
+    public void setMerged(TassaCluster first, TassaCluster second);
+
+    /**
+     * Cluster has been removed
+     * @param cluster
+     */
+    public void setRemoved(TassaCluster cluster);
+}
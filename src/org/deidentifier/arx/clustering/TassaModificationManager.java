@@ -1,14 +1,20 @@
 package org.deidentifier.arx.clustering;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Set;
 
+/**
+ * Tracks which clusters have been modified in the current or in the last
+ * iteration. For each cluster id, the iteration of its last modification is
+ * stored, so that checks are a single array access and switching to the next
+ * iteration does not need to touch any cluster.
+ */
 public class TassaModificationManager {
 
-    /** Clusters modified in the current iteration*/
-    private Set<TassaCluster> current = new HashSet<TassaCluster>();
-    /** Clusters modified in the last iteration*/
-    private Set<TassaCluster> last = new HashSet<TassaCluster>();
+    /** Iteration of the last modification, by cluster id */
+    private int[] modified  = new int[0];
+    /** Current iteration */
+    private int   iteration = 0;
     
     /**
      * Creates a new instance
@@ -23,17 +29,14 @@ public class TassaModificationManager {
      * @return
      */
     public boolean isModified(TassaCluster cluster) {
-        return this.last.contains(cluster);
+        return this.modified[cluster.id] >= this.iteration - 1;
     }
 
     /**
      * Prepare the next iteration
      */
     public void prepareNextIteration() {
-        Set<TassaCluster> temp = this.last;
-        this.last = this.current;
-        this.current = temp;
-        this.current.clear();
+        this.iteration++;
     }
     
     /**
@@ -41,16 +44,21 @@ public class TassaModificationManager {
      * @param clustering
      */
     public void setModified(Set<TassaCluster> clustering) {
-        this.current.addAll(clustering);
-        this.last.addAll(clustering);
+        for (TassaCluster cluster : clustering) {
+            this.setModified(cluster);
+        }
     }
     
     /**
-     * Sets a cluster modified
+     * Sets a cluster modified. The cluster must be registered.
      * @param cluster
      */
     public void setModified(TassaCluster cluster) {
-        this.current.add(cluster);
-        this.last.add(cluster);
+        if (cluster.id >= this.modified.length) {
+            int length = this.modified.length;
+            this.modified = Arrays.copyOf(this.modified, Math.max(cluster.id + 1, length * 2));
+            Arrays.fill(this.modified, length, this.modified.length, Integer.MIN_VALUE);
+        }
+        this.modified[cluster.id] = this.iteration;
     }
 }
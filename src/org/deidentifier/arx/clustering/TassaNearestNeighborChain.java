@@ -0,0 +1,148 @@
+package org.deidentifier.arx.clustering;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Merges clusters along chains of nearest neighbors. Starting at an arbitrary
+ * cluster, the nearest neighbor of the last cluster of the chain is appended,
+ * until two clusters are reciprocal nearest neighbors, which are then merged.
+ * The distance between two clusters is the increase in information loss when
+ * merging them, like in {@link TassaClosenessMatrix}. In contrast to the
+ * matrix, distances are not stored, so that only linear memory is required.
+ * As this distance is not reducible, the chain is cut below merged or removed
+ * clusters, and the last cluster is merged with its nearest neighbor if the
+ * neighbor is already part of the chain.
+ */
+public class TassaNearestNeighborChain implements TassaMergeQueue {
+
+    /** Clusters which have not been removed, in positions 0 to numActive - 1 */
+    private TassaCluster[] active;
+    /** Number of clusters which have not been removed */
+    private int            numActive;
+    /** Position of the cluster with id x in active, -1 if removed */
+    private int[]          positions;
+    /** The chain */
+    private TassaCluster[] chain;
+    /** Length of the chain */
+    private int            length;
+    /** Position of the cluster with id x in the chain, -1 if not contained */
+    private int[]          links;
+
+    /**
+     * Creates a new instance
+     * @param clustering
+     */
+    public TassaNearestNeighborChain(Collection<TassaCluster> clustering) {
+        int maxId = -1;
+        this.active = new TassaCluster[clustering.size()];
+        for (TassaCluster cluster : clustering) {
+            active[numActive++] = cluster;
+            maxId = Math.max(maxId, cluster.id);
+        }
+        this.positions = new int[maxId + 1];
+        this.links = new int[maxId + 1];
+        Arrays.fill(positions, -1);
+        Arrays.fill(links, -1);
+        for (int i = 0; i < numActive; i++) {
+            positions[active[i].id] = i;
+        }
+        this.chain = new TassaCluster[numActive];
+    }
+
+    @Override
+    public void close() {
+        // Empty by design
+    }
+
+    @Override
+    public TassaPair<TassaCluster, TassaCluster> getClosestTwoClusters() {
+
+        if (numActive < 2) {
+            return null;
+        }
+        if (length == 0) {
+            push(active[0]);
+        }
+
+        // Extend the chain until its end is a pair of reciprocal nearest neighbors
+        while (true) {
+            TassaCluster last = chain[length - 1];
+            TassaCluster previous = length > 1 ? chain[length - 2] : null;
+            TassaCluster nearest = getNearestNeighbor(last, previous);
+            if (nearest == previous || links[nearest.id] != -1) {
+                return new TassaPair<TassaCluster, TassaCluster>(nearest, last);
+            }
+            push(nearest);
+        }
+    }
+
+    @Override
+    public void setMerged(TassaCluster first, TassaCluster second) {
+        cut(first);
+        setRemoved(second);
+    }
+
+    @Override
+    public void setRemoved(TassaCluster cluster) {
+
+        // Remove from chain
+        cut(cluster);
+
+        // Remove from active clusters
+        int position = positions[cluster.id];
+        TassaCluster last = active[--numActive];
+        active[position] = last;
+        positions[last.id] = position;
+        active[numActive] = null;
+        positions[cluster.id] = -1;
+    }
+
+    /**
+     * Removes the given cluster and all following clusters from the chain
+     * @param cluster
+     */
+    private void cut(TassaCluster cluster) {
+        int link = links[cluster.id];
+        if (link != -1) {
+            while (length > link) {
+                links[chain[--length].id] = -1;
+                chain[length] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the nearest neighbor of the given cluster. Ties are resolved in
+     * favor of the preferred cluster, and then by the order of active
+     * clusters.
+     * @param cluster
+     * @param preferred may be null
+     * @return
+     */
+    private TassaCluster getNearestNeighbor(TassaCluster cluster, TassaCluster preferred) {
+        TassaCluster result = null;
+        double minimum = Double.MAX_VALUE;
+        for (int i = 0; i < numActive; i++) {
+            TassaCluster other = active[i];
+            if (other != cluster) {
+                double delta = cluster.getInformationLossWhenAdding(other) -
+                               (cluster.getInformationLoss() + other.getInformationLoss());
+                if (result == null || delta < minimum || (delta == minimum && other == preferred)) {
+                    minimum = delta;
+                    result = other;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Appends a cluster to the chain
+     * @param cluster
+     */
+    private void push(TassaCluster cluster) {
+        links[cluster.id] = length;
+        chain[length++] = cluster;
+    }
+}
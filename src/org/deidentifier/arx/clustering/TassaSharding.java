@@ -0,0 +1,208 @@
+package org.deidentifier.arx.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cern.colt.list.IntArrayList;
+import cern.colt.map.OpenIntIntHashMap;
+import cern.colt.map.OpenIntObjectHashMap;
+
+/**
+ * Splits a dataset into shards which can be clustered independently. Shards
+ * are formed by a coarse generalization of the quasi-identifiers: starting at
+ * the roots of the hierarchies, shards which represent too many records are
+ * split by lowering the generalization level of one attribute. The attribute
+ * is chosen such that the largest part becomes as small as possible. Parts
+ * which are small enough are packed together with their siblings, which share
+ * the same generalized values. Shards which are too small to be clustered on
+ * their own are joined with their predecessors.
+ */
+public class TassaSharding {
+
+    /** Manager */
+    private final GeneralizationManager manager;
+    /** Maximal number of records represented by a shard */
+    private final int                   maxSize;
+    /** Minimal number of records represented by a shard, unless there is only one */
+    private final int                   minSize;
+
+    /**
+     * Creates a new instance
+     * 
+     * @param manager
+     * @param maxSize
+     * @param minSize
+     */
+    TassaSharding(GeneralizationManager manager, int maxSize, int minSize) {
+        if (maxSize < 1) { throw new IllegalArgumentException("Shard size must be at least one: " + maxSize); }
+        if (minSize > maxSize) { throw new IllegalArgumentException("Minimal shard size must not exceed the shard size: " + minSize); }
+        this.manager = manager;
+        this.maxSize = maxSize;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Returns the shards of the given representatives of distinct tuples
+     * 
+     * @param representatives
+     * @return
+     */
+    List<int[]> getShards(int[] representatives) {
+
+        // Start at the roots
+        int[] levels = new int[manager.getNumAttributes()];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = manager.getHeight(i) - 1;
+        }
+
+        // Split
+        IntArrayList records = new IntArrayList(representatives.clone());
+        List<int[]> shards = new ArrayList<int[]>();
+        split(records, getWeight(records), levels, shards);
+
+        // Join shards which are too small with their successors, and the
+        // last one with its predecessor
+        List<int[]> result = new ArrayList<int[]>();
+        int lastWeight = 0;
+        for (int[] shard : shards) {
+            int weight = getWeight(shard);
+            if (!result.isEmpty() && lastWeight < minSize) {
+                result.add(shard);
+                join(result);
+                lastWeight += weight;
+            } else {
+                result.add(shard);
+                lastWeight = weight;
+            }
+        }
+        if (result.size() > 1 && lastWeight < minSize) {
+            join(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of records represented by the given records
+     * 
+     * @param records
+     * @return
+     */
+    private int getWeight(int[] records) {
+        int weight = 0;
+        for (int record : records) {
+            weight += manager.getWeight(record);
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the number of records represented by the given records
+     * 
+     * @param records
+     * @return
+     */
+    private int getWeight(IntArrayList records) {
+        int weight = 0;
+        for (int i = 0; i < records.size(); i++) {
+            weight += manager.getWeight(records.getQuick(i));
+        }
+        return weight;
+    }
+
+    /**
+     * Joins the last two shards
+     * 
+     * @param shards
+     */
+    private void join(List<int[]> shards) {
+        int[] last = shards.remove(shards.size() - 1);
+        int[] previous = shards.remove(shards.size() - 1);
+        int[] joined = Arrays.copyOf(previous, previous.length + last.length);
+        System.arraycopy(last, 0, joined, previous.length, last.length);
+        shards.add(joined);
+    }
+
+    /**
+     * Splits the given records, which share the same values on the given
+     * generalization levels, into shards
+     * 
+     * @param records
+     * @param weight
+     * @param levels
+     * @param result
+     */
+    private void split(IntArrayList records, int weight, int[] levels, List<int[]> result) {
+
+        // Small enough
+        if (weight <= maxSize) {
+            result.add(Arrays.copyOf(records.elements(), records.size()));
+            return;
+        }
+
+        // Choose the attribute which results in the smallest maximal part
+        int attribute = -1;
+        int attributeMax = Integer.MAX_VALUE;
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] > 0) {
+                OpenIntIntHashMap weights = new OpenIntIntHashMap();
+                int max = 0;
+                for (int j = 0; j < records.size(); j++) {
+                    int record = records.getQuick(j);
+                    int value = manager.getPath(record, i)[levels[i] - 1];
+                    int partWeight = weights.get(value) + manager.getWeight(record);
+                    weights.put(value, partWeight);
+                    max = Math.max(max, partWeight);
+                }
+                if (max < attributeMax) {
+                    attribute = i;
+                    attributeMax = max;
+                }
+            }
+        }
+
+        // Cannot be split, as all records are equal
+        if (attribute == -1) {
+            result.add(Arrays.copyOf(records.elements(), records.size()));
+            return;
+        }
+
+        // Group by the value on the next lower level
+        int[] childLevels = levels.clone();
+        childLevels[attribute]--;
+        OpenIntObjectHashMap groups = new OpenIntObjectHashMap();
+        List<IntArrayList> parts = new ArrayList<IntArrayList>();
+        for (int j = 0; j < records.size(); j++) {
+            int record = records.getQuick(j);
+            int value = manager.getPath(record, attribute)[childLevels[attribute]];
+            IntArrayList part = (IntArrayList) groups.get(value);
+            if (part == null) {
+                part = new IntArrayList();
+                groups.put(value, part);
+                parts.add(part);
+            }
+            part.add(record);
+        }
+
+        // Pack small siblings and split large ones further
+        IntArrayList pack = new IntArrayList();
+        int packWeight = 0;
+        for (IntArrayList part : parts) {
+            int partWeight = getWeight(part);
+            if (partWeight > maxSize) {
+                split(part, partWeight, childLevels, result);
+                continue;
+            }
+            if (packWeight + partWeight > maxSize) {
+                result.add(Arrays.copyOf(pack.elements(), pack.size()));
+                pack = new IntArrayList();
+                packWeight = 0;
+            }
+            pack.addAllOf(part);
+            packWeight += partWeight;
+        }
+        if (!pack.isEmpty()) {
+            result.add(Arrays.copyOf(pack.elements(), pack.size()));
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package org.deidentifier.arx.clustering;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import cern.colt.list.DoubleArrayList;
+import cern.colt.list.LongArrayList;
+
 public class TassaStatistics {
 
     /** TODO*/
@@ -16,6 +23,22 @@ public class TassaStatistics {
     private int numberOfClusters;
     /** TODO*/
     private long executionTime;
+    /** Number of iterations of moving records and splitting clusters */
+    private int iterations;
+    /** Number of cost evaluations performed when searching for the closest cluster */
+    private long costEvaluations;
+    /** Number of cost evaluations pruned by the lower bound */
+    private long costEvaluationsPruned;
+    /** Number of cost evaluations pruned by the lower bound, per iteration */
+    private LongArrayList costEvaluationsPrunedPerIteration = new LongArrayList();
+    /** Seed of the random initial partitioning */
+    private long seed;
+    /** Whether moving and splitting has been stopped by the deadline */
+    private boolean deadlineExceeded;
+    /** Seeds of all runs of a multi-start execution */
+    private LongArrayList startSeeds = new LongArrayList();
+    /** Final information loss of all runs of a multi-start execution */
+    private DoubleArrayList startInformationLosses = new DoubleArrayList();
     
     /**
      * Creates a new instance
@@ -40,6 +63,41 @@ public class TassaStatistics {
         return clustersSplit;
     }
 
+    /**
+     * Returns the number of cost evaluations performed when searching for the
+     * closest cluster of a record
+     * @return
+     */
+    public long getCostEvaluations() {
+        return costEvaluations;
+    }
+
+    /**
+     * Returns the number of cost evaluations pruned by the lower bound
+     * @return
+     */
+    public long getCostEvaluationsPruned() {
+        return costEvaluationsPruned;
+    }
+
+    /**
+     * Returns the number of cost evaluations pruned by the lower bound in the
+     * given iteration
+     * @param iteration
+     * @return
+     */
+    public long getCostEvaluationsPruned(int iteration) {
+        return costEvaluationsPrunedPerIteration.get(iteration);
+    }
+
+    /**
+     * Returns whether moving and splitting has been stopped by the deadline
+     * @return
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
     /**
      * TODO
      * @return
@@ -64,6 +122,32 @@ public class TassaStatistics {
         return initialInformationLoss;
     }
 
+    /**
+     * Returns the number of iterations
+     * @return
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the final information loss of the given run of a multi-start
+     * execution
+     * @param start
+     * @return
+     */
+    public double getFinalInformationLoss(int start) {
+        return startInformationLosses.get(start);
+    }
+
+    /**
+     * Returns the number of runs of a multi-start execution
+     * @return
+     */
+    public int getNumberOfStarts() {
+        return startSeeds.size();
+    }
+
     /**
      * TODO
      * @return
@@ -80,17 +164,45 @@ public class TassaStatistics {
         return recordsMoved;
     }
 
+    /**
+     * Returns the seed of the random initial partitioning
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the seed of the given run of a multi-start execution
+     * @param start
+     * @return
+     */
+    public long getSeed(int start) {
+        return startSeeds.get(start);
+    }
+
     /**
      * Merge with another instance
      * @param other
      */
     public void merge(TassaStatistics other) {
+        if (other == this) {
+            return;
+        }
         this.finalInformationLoss = other.finalInformationLoss;
         this.recordsMoved += other.recordsMoved;
         this.clustersMerged += other.clustersMerged;
         this.clustersSplit += other.clustersSplit;
         this.numberOfClusters = other.numberOfClusters;
         this.executionTime += other.executionTime;
+        this.iterations += other.iterations;
+        this.deadlineExceeded |= other.deadlineExceeded;
+        this.costEvaluations += other.costEvaluations;
+        this.costEvaluationsPruned += other.costEvaluationsPruned;
+        int size = other.costEvaluationsPrunedPerIteration.size();
+        for (int i = 0; i < size; i++) {
+            this.costEvaluationsPrunedPerIteration.add(other.costEvaluationsPrunedPerIteration.getQuick(i));
+        }
     }
 
     @Override
@@ -104,10 +216,75 @@ public class TassaStatistics {
         builder.append(" - Final information loss: ").append(finalInformationLoss).append("\n");
         builder.append(" - Number of clusters: ").append(numberOfClusters).append("\n");
         builder.append(" - Execution time: ").append(executionTime).append("\n");
+        builder.append(" - Iterations: ").append(iterations).append("\n");
+        builder.append(" - Cost evaluations: ").append(costEvaluations).append("\n");
+        builder.append(" - Cost evaluations pruned: ").append(costEvaluationsPruned).append(" ").append(costEvaluationsPrunedPerIteration).append("\n");
+        builder.append(" - Seed: ").append(seed).append("\n");
+        builder.append(" - Deadline exceeded: ").append(deadlineExceeded).append("\n");
+        if (!startSeeds.isEmpty()) {
+            builder.append(" - Starts: ").append(startSeeds).append(" ").append(startInformationLosses).append("\n");
+        }
         builder.append("]");
         return builder.toString();
     }
 
+    /**
+     * Reads an instance which has been written with write()
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static TassaStatistics read(DataInput in) throws IOException {
+        TassaStatistics result = new TassaStatistics();
+        result.recordsMoved = in.readLong();
+        result.clustersSplit = in.readLong();
+        result.clustersMerged = in.readLong();
+        result.initialInformationLoss = in.readDouble();
+        result.finalInformationLoss = in.readDouble();
+        result.numberOfClusters = in.readInt();
+        result.executionTime = in.readLong();
+        result.iterations = in.readInt();
+        result.costEvaluations = in.readLong();
+        result.costEvaluationsPruned = in.readLong();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            result.costEvaluationsPrunedPerIteration.add(in.readLong());
+        }
+        result.seed = in.readLong();
+        result.deadlineExceeded = in.readBoolean();
+        size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            result.startSeeds.add(in.readLong());
+            result.startInformationLosses.add(in.readDouble());
+        }
+        return result;
+    }
+
+    /**
+     * Records a run of a multi-start execution
+     * @param seed
+     * @param finalInformationLoss
+     */
+    void addStart(long seed, double finalInformationLoss) {
+        this.startSeeds.add(seed);
+        this.startInformationLosses.add(finalInformationLoss);
+    }
+
+    /**
+     * Counts cost evaluations. Evaluations outside of an iteration, e.g. when
+     * inserting records, are not attributed to an iteration.
+     * @param evaluations
+     * @param pruned
+     */
+    void incCostEvaluations(long evaluations, long pruned) {
+        this.costEvaluations += evaluations;
+        this.costEvaluationsPruned += pruned;
+        int iteration = this.costEvaluationsPrunedPerIteration.size() - 1;
+        if (iteration >= 0) {
+            this.costEvaluationsPrunedPerIteration.setQuick(iteration, this.costEvaluationsPrunedPerIteration.getQuick(iteration) + pruned);
+        }
+    }
+
     /**
      * TODO
      */
@@ -122,6 +299,14 @@ public class TassaStatistics {
         this.clustersSplit++;
     }
 
+    /**
+     * Starts the next iteration
+     */
+    void incIterations() {
+        this.iterations++;
+        this.costEvaluationsPrunedPerIteration.add(0);
+    }
+
     /**
      * TODO
      */
@@ -129,6 +314,13 @@ public class TassaStatistics {
         this.recordsMoved++;
     }
 
+    /**
+     * Sets whether moving and splitting has been stopped by the deadline
+     */
+    void setDeadlineExceeded(boolean deadlineExceeded) {
+        this.deadlineExceeded = deadlineExceeded;
+    }
+
     /**
      * TODO
      */
@@ -150,10 +342,46 @@ public class TassaStatistics {
         this.initialInformationLoss = initialInformationLoss;
     }
 
+    /**
+     * Sets the seed of the random initial partitioning
+     */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     /**
      * TODO
      */
     void setNumberOfClusters(int numberOfClusters) {
         this.numberOfClusters = numberOfClusters;
     }
+
+    /**
+     * Writes this instance in a compact binary format
+     * @param out
+     * @throws IOException
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeLong(recordsMoved);
+        out.writeLong(clustersSplit);
+        out.writeLong(clustersMerged);
+        out.writeDouble(initialInformationLoss);
+        out.writeDouble(finalInformationLoss);
+        out.writeInt(numberOfClusters);
+        out.writeLong(executionTime);
+        out.writeInt(iterations);
+        out.writeLong(costEvaluations);
+        out.writeLong(costEvaluationsPruned);
+        out.writeInt(costEvaluationsPrunedPerIteration.size());
+        for (int i = 0; i < costEvaluationsPrunedPerIteration.size(); i++) {
+            out.writeLong(costEvaluationsPrunedPerIteration.getQuick(i));
+        }
+        out.writeLong(seed);
+        out.writeBoolean(deadlineExceeded);
+        out.writeInt(startSeeds.size());
+        for (int i = 0; i < startSeeds.size(); i++) {
+            out.writeLong(startSeeds.getQuick(i));
+            out.writeDouble(startInformationLosses.getQuick(i));
+        }
+    }
 }
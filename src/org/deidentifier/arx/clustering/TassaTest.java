@@ -1,9 +1,13 @@
 package org.deidentifier.arx.clustering;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
 
 import org.deidentifier.arx.ARXConfiguration;
 import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
 import org.deidentifier.arx.benchmark.BenchmarkSetup;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkDataset;
 import org.deidentifier.arx.benchmark.BenchmarkSetup.BenchmarkPrivacyModel;
@@ -14,6 +18,12 @@ public class TassaTest {
     
     private static final int K = 20;
     
+    /** Number of records which are inserted after the execution */
+    private static final int INSERTIONS = 100;
+    
+    /** Number of records which are retracted after the insertion */
+    private static final int RETRACTIONS = 100;
+    
     public static void main(String[] args) throws IOException {
         
     	// Init
@@ -63,6 +73,56 @@ public class TassaTest {
         System.out.println("Execution time: " + (System.currentTimeMillis() - time) / (double)REPETITIONS);
         
         // Sanity checks, for testing only
+        final DataHandle handle = data.getHandle();
+        check(algorithm, handle.getNumRows());
+        
+        // Print
+        System.out.println(algorithm.getStatistics());
+        
+        // Insert copies of random input records
+        final String[] attributes = algorithm.getQuasiIdentifiers();
+        final Random random = new Random(0);
+        final String[][] records = new String[INSERTIONS][attributes.length];
+        for (int i = 0; i < records.length; i++) {
+            int row = random.nextInt(handle.getNumRows());
+            for (int j = 0; j < attributes.length; j++) {
+                records[i][j] = handle.getValue(row, handle.getColumnIndexOf(attributes[j]));
+            }
+        }
+        time = System.currentTimeMillis();
+        int[] changed = algorithm.insert(records);
+        System.out.println("Insertion time: " + (System.currentTimeMillis() - time) + ", rows changed: " + changed.length);
+        check(algorithm, handle.getNumRows() + INSERTIONS);
+        
+        // Retract distinct random records, including inserted ones
+        final int[] rows = new int[RETRACTIONS];
+        final Set<Integer> retracted = new HashSet<Integer>();
+        for (int i = 0; i < rows.length; i++) {
+            int row;
+            do {
+                row = random.nextInt(handle.getNumRows() + INSERTIONS);
+            } while (!retracted.add(row));
+            rows[i] = row;
+        }
+        time = System.currentTimeMillis();
+        changed = algorithm.retract(rows);
+        System.out.println("Retraction time: " + (System.currentTimeMillis() - time) + ", rows changed: " + changed.length);
+        check(algorithm, handle.getNumRows() + INSERTIONS - RETRACTIONS);
+        for (String[] row : algorithm.getOutput(rows)) {
+            if (row != null) {
+                throw new IllegalStateException("Output dataset contains retracted records");
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the clustering is k-anonymous and contains the given
+     * number of records
+     * 
+     * @param algorithm
+     * @param numRecords
+     */
+    private static void check(TassaAlgorithm algorithm, int numRecords) {
         int count = 0;
         for (TassaCluster c : algorithm.getClustering()) {
             count += c.getSize();
@@ -70,11 +130,11 @@ public class TassaTest {
                 throw new IllegalStateException("Privacy guarantees not fulfilled");
             }
         }
-        if (count < data.getHandle().getNumRows()) {
+        if (count < numRecords) {
             throw new IllegalStateException("Output dataset misses some records");
         }
-        
-        // Print
-        System.out.println(algorithm.getStatistics());
+        if (count > numRecords) {
+            throw new IllegalStateException("Output dataset contains too many records");
+        }
     }
 }